@@ -0,0 +1,34 @@
+package datastructures;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler attached, so every result reports
+ * the allocation rate next to the throughput, and stores them as JSON to be
+ * used as a baseline for later comparisons.
+ *
+ * Any regular JMH command line option (e.g. "-p size=1000") can be given.
+ *
+ * @author Egar Garcia
+ */
+public class BenchmarkRunner {
+
+    public static void main(final String[] args) throws RunnerException, CommandLineOptionException {
+        final Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(SortedTreeListBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("bench_output.json")
+                .build();
+
+        new Runner(options).run();
+    }
+}
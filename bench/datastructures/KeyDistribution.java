@@ -0,0 +1,69 @@
+package datastructures;
+
+import java.util.Random;
+
+/**
+ * Key distributions used to feed the benchmarks.
+ *
+ * @author Egar Garcia
+ */
+public enum KeyDistribution {
+
+    RANDOM {
+        @Override
+        Integer[] generate(final int n, final Random random) {
+            final Integer[] keys = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                keys[i] = random.nextInt();
+            }
+            return keys;
+        }
+    },
+
+    SORTED {
+        @Override
+        Integer[] generate(final int n, final Random random) {
+            final Integer[] keys = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                keys[i] = i;
+            }
+            return keys;
+        }
+    },
+
+    REVERSE_SORTED {
+        @Override
+        Integer[] generate(final int n, final Random random) {
+            final Integer[] keys = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                keys[i] = n - 1 - i;
+            }
+            return keys;
+        }
+    },
+
+    HEAVY_DUPLICATES {
+        @Override
+        Integer[] generate(final int n, final Random random) {
+            final int distinct = n / 100 + 1;
+            final Integer[] keys = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                keys[i] = random.nextInt(distinct);
+            }
+            return keys;
+        }
+    };
+
+    abstract Integer[] generate(final int n, final Random random);
+
+    static <T> T[] shuffle(final T[] array, final Random random) {
+        final T[] result = array.clone();
+        for (int i = result.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            T tmp = result[i];
+            result[i] = result[j];
+            result[j] = tmp;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,390 @@
+package datastructures;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Common view over the sorted collections being compared, so every
+ * benchmark exercises exactly the same sequence of operations.
+ *
+ * The JDK sets cannot hold repetitions, so for them allowRepetitions is
+ * ignored; TreeMap is used as a counting multiset when it is enabled.
+ *
+ * @author Egar Garcia
+ */
+abstract class SortedCollectionAdapter {
+
+    abstract void insert(Integer key);
+
+    abstract boolean contains(Integer key);
+
+    abstract Integer findFirst(Integer key);
+
+    abstract Integer findLast(Integer key);
+
+    abstract void remove(Integer key);
+
+    abstract Integer popFirst();
+
+    abstract Integer popLast();
+
+    abstract Iterator<Integer> iterator();
+
+    static SortedCollectionAdapter create(final String implementation, final boolean allowRepetitions) {
+        switch (implementation) {
+        case "SortedTreeList":
+            return new SortedTreeListAdapter(new SortedTreeList<>(allowRepetitions, false, BalancingPolicy.AVL));
+        case "SortedTreeListWAVL":
+            return new SortedTreeListAdapter(new SortedTreeList<>(allowRepetitions, false, BalancingPolicy.WAVL));
+        case "SortedTreeListKeyed":
+            return new SortedTreeListAdapter(new SortedTreeList<Integer>(Integer::longValue, allowRepetitions));
+        case "BufferedSortedTreeList":
+            return new BufferedSortedTreeListAdapter(allowRepetitions);
+        case "CompactSortedTreeList":
+            return new CompactSortedTreeListAdapter(allowRepetitions);
+        case "TreeSet":
+            return new TreeSetAdapter();
+        case "TreeMap":
+            return new TreeMapAdapter(allowRepetitions);
+        case "ConcurrentSkipListSet":
+            return new ConcurrentSkipListSetAdapter();
+        default:
+            throw new IllegalArgumentException("Unknown implementation: " + implementation);
+        }
+    }
+
+
+    private static class SortedTreeListAdapter extends SortedCollectionAdapter {
+        private final SortedTreeList<Integer> list;
+
+        SortedTreeListAdapter(final SortedTreeList<Integer> list) {
+            this.list = list;
+        }
+
+        @Override
+        void insert(final Integer key) {
+            list.insert(key);
+        }
+
+        @Override
+        boolean contains(final Integer key) {
+            return list.contains(key);
+        }
+
+        @Override
+        Integer findFirst(final Integer key) {
+            final ListNode<Integer> node = list.findFirst(key);
+            return node != null ? node.getData() : null;
+        }
+
+        @Override
+        Integer findLast(final Integer key) {
+            final ListNode<Integer> node = list.findLast(key);
+            return node != null ? node.getData() : null;
+        }
+
+        @Override
+        void remove(final Integer key) {
+            list.remove(key);
+        }
+
+        @Override
+        Integer popFirst() {
+            return list.popFirst();
+        }
+
+        @Override
+        Integer popLast() {
+            return list.popLast();
+        }
+
+        @Override
+        Iterator<Integer> iterator() {
+            return list.iterator();
+        }
+    }
+
+    private static class BufferedSortedTreeListAdapter extends SortedCollectionAdapter {
+        private final BufferedSortedTreeList<Integer> list;
+
+        BufferedSortedTreeListAdapter(final boolean allowRepetitions) {
+            list = new BufferedSortedTreeList<>(allowRepetitions);
+        }
+
+        @Override
+        void insert(final Integer key) {
+            list.insert(key);
+        }
+
+        @Override
+        boolean contains(final Integer key) {
+            return list.contains(key);
+        }
+
+        @Override
+        Integer findFirst(final Integer key) {
+            return list.find(key);
+        }
+
+        @Override
+        Integer findLast(final Integer key) {
+            return list.find(key);
+        }
+
+        @Override
+        void remove(final Integer key) {
+            list.remove(key);
+        }
+
+        @Override
+        Integer popFirst() {
+            return list.popFirst();
+        }
+
+        @Override
+        Integer popLast() {
+            return list.popLast();
+        }
+
+        @Override
+        Iterator<Integer> iterator() {
+            return list.iterator();
+        }
+    }
+
+    private static class CompactSortedTreeListAdapter extends SortedCollectionAdapter {
+        private final CompactSortedTreeList<Integer> list;
+
+        CompactSortedTreeListAdapter(final boolean allowRepetitions) {
+            list = new CompactSortedTreeList<>(allowRepetitions);
+        }
+
+        @Override
+        void insert(final Integer key) {
+            list.insert(key);
+        }
+
+        @Override
+        boolean contains(final Integer key) {
+            return list.contains(key);
+        }
+
+        @Override
+        Integer findFirst(final Integer key) {
+            final ListNode<Integer> node = list.findFirst(key);
+            return node != null ? node.getData() : null;
+        }
+
+        @Override
+        Integer findLast(final Integer key) {
+            final ListNode<Integer> node = list.findLast(key);
+            return node != null ? node.getData() : null;
+        }
+
+        @Override
+        void remove(final Integer key) {
+            list.remove(key);
+        }
+
+        @Override
+        Integer popFirst() {
+            return list.popFirst();
+        }
+
+        @Override
+        Integer popLast() {
+            return list.popLast();
+        }
+
+        @Override
+        Iterator<Integer> iterator() {
+            return list.iterator();
+        }
+    }
+
+    private static class TreeSetAdapter extends SortedCollectionAdapter {
+        private final TreeSet<Integer> set = new TreeSet<>();
+
+        @Override
+        void insert(final Integer key) {
+            set.add(key);
+        }
+
+        @Override
+        boolean contains(final Integer key) {
+            return set.contains(key);
+        }
+
+        @Override
+        Integer findFirst(final Integer key) {
+            final Integer found = set.ceiling(key);
+            return key.equals(found) ? found : null;
+        }
+
+        @Override
+        Integer findLast(final Integer key) {
+            final Integer found = set.floor(key);
+            return key.equals(found) ? found : null;
+        }
+
+        @Override
+        void remove(final Integer key) {
+            set.remove(key);
+        }
+
+        @Override
+        Integer popFirst() {
+            return set.pollFirst();
+        }
+
+        @Override
+        Integer popLast() {
+            return set.pollLast();
+        }
+
+        @Override
+        Iterator<Integer> iterator() {
+            return set.iterator();
+        }
+    }
+
+    private static class TreeMapAdapter extends SortedCollectionAdapter {
+        private final TreeMap<Integer, long[]> map = new TreeMap<>();
+        private final boolean allowRepetitions;
+
+        TreeMapAdapter(final boolean allowRepetitions) {
+            this.allowRepetitions = allowRepetitions;
+        }
+
+        @Override
+        void insert(final Integer key) {
+            final long[] count = map.get(key);
+            if (count == null) {
+                map.put(key, new long[] {1L});
+            } else if (allowRepetitions) {
+                count[0]++;
+            }
+        }
+
+        @Override
+        boolean contains(final Integer key) {
+            return map.containsKey(key);
+        }
+
+        @Override
+        Integer findFirst(final Integer key) {
+            final Integer found = map.ceilingKey(key);
+            return key.equals(found) ? found : null;
+        }
+
+        @Override
+        Integer findLast(final Integer key) {
+            final Integer found = map.floorKey(key);
+            return key.equals(found) ? found : null;
+        }
+
+        @Override
+        void remove(final Integer key) {
+            final long[] count = map.get(key);
+            if (count != null && --count[0] == 0L) {
+                map.remove(key);
+            }
+        }
+
+        @Override
+        Integer popFirst() {
+            return pop(map.firstEntry());
+        }
+
+        @Override
+        Integer popLast() {
+            return pop(map.lastEntry());
+        }
+
+        private Integer pop(final Map.Entry<Integer, long[]> entry) {
+            if (entry == null) {
+                return null;
+            }
+            remove(entry.getKey());
+            return entry.getKey();
+        }
+
+        /**
+         * Gets every key as many times as it was counted, like the lists
+         * give their repetitions.
+         */
+        @Override
+        Iterator<Integer> iterator() {
+            final Iterator<Map.Entry<Integer, long[]>> entries = map.entrySet().iterator();
+            return new Iterator<Integer>() {
+                private Integer key;
+                private long remaining;
+
+                @Override
+                public boolean hasNext() {
+                    return remaining > 0L || entries.hasNext();
+                }
+
+                @Override
+                public Integer next() {
+                    if (remaining == 0L) {
+                        final Map.Entry<Integer, long[]> entry = entries.next();
+                        key = entry.getKey();
+                        remaining = entry.getValue()[0];
+                    }
+                    remaining--;
+                    return key;
+                }
+            };
+        }
+    }
+
+    private static class ConcurrentSkipListSetAdapter extends SortedCollectionAdapter {
+        private final ConcurrentSkipListSet<Integer> set = new ConcurrentSkipListSet<>();
+
+        @Override
+        void insert(final Integer key) {
+            set.add(key);
+        }
+
+        @Override
+        boolean contains(final Integer key) {
+            return set.contains(key);
+        }
+
+        @Override
+        Integer findFirst(final Integer key) {
+            final Integer found = set.ceiling(key);
+            return key.equals(found) ? found : null;
+        }
+
+        @Override
+        Integer findLast(final Integer key) {
+            final Integer found = set.floor(key);
+            return key.equals(found) ? found : null;
+        }
+
+        @Override
+        void remove(final Integer key) {
+            set.remove(key);
+        }
+
+        @Override
+        Integer popFirst() {
+            return set.pollFirst();
+        }
+
+        @Override
+        Integer popLast() {
+            return set.pollLast();
+        }
+
+        @Override
+        Iterator<Integer> iterator() {
+            return set.iterator();
+        }
+    }
+}
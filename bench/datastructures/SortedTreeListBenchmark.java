@@ -0,0 +1,135 @@
+package datastructures;
+
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Throughput benchmarks of SortedTreeList against the JDK sorted collections.
+ *
+ * Every benchmark works over a collection pre-filled with the generated keys,
+ * except insert which measures loading all of them into an empty one. Remove
+ * and pop operations put the element back right after taking it out, so the
+ * collection keeps its size across invocations.
+ *
+ * @author Egar Garcia
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class SortedTreeListBenchmark {
+
+    private static final long SEED = 0x5EEDL;
+
+    @Param({"SortedTreeList", "SortedTreeListWAVL", "SortedTreeListKeyed", "BufferedSortedTreeList",
+            "CompactSortedTreeList", "TreeSet", "TreeMap", "ConcurrentSkipListSet"})
+    private String implementation;
+
+    @Param({"RANDOM", "SORTED", "REVERSE_SORTED", "HEAVY_DUPLICATES"})
+    private KeyDistribution distribution;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    private int size;
+
+    @Param({"false", "true"})
+    private boolean allowRepetitions;
+
+    private Integer[] keys;
+    private Integer[] probes;
+    private SortedCollectionAdapter collection;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final Random random = new Random(SEED);
+        keys = distribution.generate(size, random);
+        probes = KeyDistribution.shuffle(keys, random);
+
+        collection = newCollection();
+        for (Integer key : keys) {
+            collection.insert(key);
+        }
+        cursor = 0;
+    }
+
+    private SortedCollectionAdapter newCollection() {
+        return SortedCollectionAdapter.create(implementation, allowRepetitions);
+    }
+
+    private Integer nextProbe() {
+        final Integer probe = probes[cursor];
+        cursor = cursor + 1 < probes.length ? cursor + 1 : 0;
+        return probe;
+    }
+
+    @Benchmark
+    public SortedCollectionAdapter insert() {
+        final SortedCollectionAdapter target = newCollection();
+        for (Integer key : keys) {
+            target.insert(key);
+        }
+        return target;
+    }
+
+    @Benchmark
+    public boolean contains() {
+        return collection.contains(nextProbe());
+    }
+
+    @Benchmark
+    public Integer findFirst() {
+        return collection.findFirst(nextProbe());
+    }
+
+    @Benchmark
+    public Integer findLast() {
+        return collection.findLast(nextProbe());
+    }
+
+    @Benchmark
+    public Integer removeAndReinsert() {
+        final Integer probe = nextProbe();
+        collection.remove(probe);
+        collection.insert(probe);
+        return probe;
+    }
+
+    @Benchmark
+    public Integer popFirstAndReinsert() {
+        final Integer first = collection.popFirst();
+        collection.insert(first);
+        return first;
+    }
+
+    @Benchmark
+    public Integer popLastAndReinsert() {
+        final Integer last = collection.popLast();
+        collection.insert(last);
+        return last;
+    }
+
+    @Benchmark
+    public void iterate(final Blackhole blackhole) {
+        final Iterator<Integer> iterator = collection.iterator();
+        while (iterator.hasNext()) {
+            blackhole.consume(iterator.next());
+        }
+    }
+}
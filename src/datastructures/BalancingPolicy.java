@@ -0,0 +1,18 @@
+package datastructures;
+
+/**
+ * The scheme used by a SortedTreeList to keep its tree balanced.
+ *
+ * AVL keeps the height difference between siblings at most one, which gives
+ * the shallowest trees and so the fastest searches. WAVL (weak AVL) relaxes
+ * it for removals, allowing nodes whose children both have a rank
+ * difference of two; it does at most two rotations per update and amortized
+ * O(1) rank changes, so it restructures far less on removal-heavy loads,
+ * while a tree built only by insertions is still an AVL tree.
+ *
+ * @author Egar Garcia
+ */
+public enum BalancingPolicy {
+    AVL,
+    WAVL
+}
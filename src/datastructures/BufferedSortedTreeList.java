@@ -0,0 +1,540 @@
+package datastructures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A SortedTreeList for write-heavy loads, which keeps the new elements out
+ * of its tree for a while, in the way of a log-structured merge tree.
+ *
+ * An insertion goes into a small sorted buffer, at the cost of a binary
+ * search and a short array copy. A full buffer becomes a sorted run, and
+ * runs of the same level are merged into one of the next level, like the
+ * carries of a binary counter, so until they are flushed every element is
+ * copied O(log(f / b)) times by sequential merges, for a buffer capacity b
+ * and a flush threshold f. Once the runs hold f elements, they are merged
+ * into the tree in bulk by insertAll, which joins them at once if they go
+ * after the last element, or otherwise either rebuilds the tree or inserts
+ * them in order, each search starting from the previous insertion.
+ *
+ * The reads look at the tree, every run and the buffer, so the buffering
+ * cannot be noticed besides the performance: a lookup costs O(log n) for
+ * the tree plus a binary search per run. When repetitions are not allowed
+ * every insertion is such a lookup as well.
+ *
+ * @author Egar Garcia
+ *
+ * @param <T>
+ */
+public class BufferedSortedTreeList<T extends Comparable<T>> implements Iterable<T> {
+
+    public static final int DEFAULT_BUFFER_CAPACITY = 256;
+    public static final int DEFAULT_FLUSH_THRESHOLD = 16384;
+
+    private final SortedTreeList<T> list;
+    private final boolean allowRepetitions;
+    private final T[] buffer;
+    private int bufferSize;
+    private final int flushThreshold;
+    private final List<Run> runs;
+    private long runsSize;
+    private long modCount;
+
+    /**
+     * @throws IllegalArgumentException if the buffer capacity is not
+     *         positive or greater than the flush threshold, or if counting
+     *         repetitions that are not allowed.
+     */
+    @SuppressWarnings("unchecked")
+    public BufferedSortedTreeList(final boolean allowRepetitions, final boolean countRepetitions,
+            final BalancingPolicy balancingPolicy, final int bufferCapacity, final int flushThreshold) {
+        if (bufferCapacity < 1) {
+            throw new IllegalArgumentException("The buffer capacity must be positive");
+        } else if (bufferCapacity > flushThreshold) {
+            throw new IllegalArgumentException("The buffer capacity cannot be greater than the flush threshold");
+        }
+
+        list = new SortedTreeList<>(allowRepetitions, countRepetitions, balancingPolicy);
+        this.allowRepetitions = allowRepetitions;
+        buffer = (T[]) new Comparable<?>[bufferCapacity];
+        bufferSize = 0;
+        this.flushThreshold = flushThreshold;
+        runs = new ArrayList<>();
+        runsSize = 0L;
+    }
+
+    public BufferedSortedTreeList(final boolean allowRepetitions) {
+        this(allowRepetitions, false, BalancingPolicy.AVL, DEFAULT_BUFFER_CAPACITY, DEFAULT_FLUSH_THRESHOLD);
+    }
+
+    public BufferedSortedTreeList() {
+        this(false);
+    }
+
+    public long size() {
+        return list.size() + runsSize + bufferSize;
+    }
+
+    /**
+     * Gets the number of elements waiting in the buffer and the runs to be
+     * merged into the tree.
+     */
+    public long getPendingSize() {
+        return runsSize + bufferSize;
+    }
+
+    public T first() {
+        final Source<T> first = getFirstSource();
+        return first != null ? first.peekFirst() : null;
+    }
+
+    public T last() {
+        final Source<T> last = getLastSource();
+        return last != null ? last.peekLast() : null;
+    }
+
+    public boolean contains(final T data) {
+        return find(data) != null;
+    }
+
+    /**
+     * Gets the element equal to the given one, or null if it is not
+     * contained.
+     */
+    public T find(final T data) {
+        final int index = search(buffer, 0, bufferSize, data);
+        if (index >= 0) {
+            return buffer[index];
+        }
+
+        for (Run run : runs) {
+            if (run != null) {
+                final int runIndex = search(run.elements, run.from, run.to, data);
+                if (runIndex >= 0) {
+                    return run.elements[runIndex];
+                }
+            }
+        }
+
+        final ListNode<T> node = list.find(data);
+        return node != null ? node.getData() : null;
+    }
+
+    /**
+     * Inserts an element into the buffer, which if it gets full is merged
+     * into the runs, and these into the tree once they reach the flush
+     * threshold.
+     */
+    public void insert(final T data) {
+        if (!allowRepetitions && contains(data)) {
+            return;
+        }
+
+        final int index = search(buffer, 0, bufferSize, data);
+        final int position = index >= 0 ? index : -index - 1;
+        System.arraycopy(buffer, position, buffer, position + 1, bufferSize - position);
+        buffer[position] = data;
+        bufferSize++;
+        modCount++;
+
+        if (bufferSize == buffer.length) {
+            spill();
+        }
+    }
+
+    /**
+     * Inserts a batch of elements straight into the tree, together with the
+     * pending ones.
+     */
+    public void insertAll(final Collection<? extends T> data) {
+        final List<T> batch = getPending();
+        batch.addAll(data);
+        clearPending();
+        list.insertAll(batch);
+        modCount++;
+    }
+
+    /**
+     * Removes an occurrence of an element, from the buffer or the runs if it
+     * is there.
+     */
+    public void remove(final T data) {
+        modCount++;
+        final int index = search(buffer, 0, bufferSize, data);
+        if (index >= 0) {
+            System.arraycopy(buffer, index + 1, buffer, index, bufferSize - index - 1);
+            buffer[--bufferSize] = null;
+            return;
+        }
+
+        for (int level = 0; level < runs.size(); level++) {
+            final Run run = runs.get(level);
+            if (run != null) {
+                final int runIndex = search(run.elements, run.from, run.to, data);
+                if (runIndex >= 0) {
+                    System.arraycopy(run.elements, runIndex + 1, run.elements, runIndex, run.to - runIndex - 1);
+                    run.elements[--run.to] = null;
+                    onRemovedFromRun(level);
+                    return;
+                }
+            }
+        }
+
+        list.remove(data);
+    }
+
+    public T popFirst() {
+        final Source<T> first = getFirstSource();
+        if (first == null) {
+            return null;
+        }
+        modCount++;
+        return first.popFirst();
+    }
+
+    public T popLast() {
+        final Source<T> last = getLastSource();
+        if (last == null) {
+            return null;
+        }
+        modCount++;
+        return last.popLast();
+    }
+
+    /**
+     * Merges all the pending elements into the tree. They are given to
+     * insertAll as the concatenation of the sorted runs and the buffer, which
+     * its sort only has to merge.
+     */
+    public void flush() {
+        if (getPendingSize() == 0L) {
+            return;
+        }
+
+        final List<T> pending = getPending();
+        clearPending();
+        list.insertAll(pending);
+        modCount++;
+    }
+
+    /**
+     * Gets the elements of the tree, the runs and the buffer merged in
+     * sorted order.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new MergingIterator();
+    }
+
+    /**
+     * Turns the full buffer into a run, merging it with the runs of the
+     * levels that are taken, and flushes the runs if they reached the
+     * threshold.
+     */
+    private void spill() {
+        Run carry = new Run(Arrays.copyOf(buffer, bufferSize), 0, bufferSize);
+        Arrays.fill(buffer, 0, bufferSize, null);
+        runsSize += bufferSize;
+        bufferSize = 0;
+
+        int level = 0;
+        while (level < runs.size() && runs.get(level) != null) {
+            carry = merge(runs.get(level), carry);
+            runs.set(level++, null);
+        }
+        if (level == runs.size()) {
+            runs.add(carry);
+        } else {
+            runs.set(level, carry);
+        }
+
+        if (runsSize >= flushThreshold) {
+            flush();
+        }
+    }
+
+    /**
+     * Merges two runs, the elements of the older one first among equal ones.
+     */
+    @SuppressWarnings("unchecked")
+    private Run merge(final Run older, final Run newer) {
+        final T[] merged = (T[]) new Comparable<?>[older.size() + newer.size()];
+        int i = older.from;
+        int j = newer.from;
+        int k = 0;
+
+        while (i < older.to && j < newer.to) {
+            merged[k++] = newer.elements[j].compareTo(older.elements[i]) < 0 ? newer.elements[j++]
+                    : older.elements[i++];
+        }
+        System.arraycopy(older.elements, i, merged, k, older.to - i);
+        System.arraycopy(newer.elements, j, merged, k + older.to - i, newer.to - j);
+        return new Run(merged, 0, merged.length);
+    }
+
+    private List<T> getPending() {
+        final List<T> pending = new ArrayList<>((int) getPendingSize());
+        for (Run run : runs) {
+            if (run != null) {
+                pending.addAll(Arrays.asList(run.elements).subList(run.from, run.to));
+            }
+        }
+        pending.addAll(Arrays.asList(buffer).subList(0, bufferSize));
+        return pending;
+    }
+
+    private void clearPending() {
+        Arrays.fill(buffer, 0, bufferSize, null);
+        bufferSize = 0;
+        runs.clear();
+        runsSize = 0L;
+    }
+
+    /**
+     * Accounts for an element taken out of the run of a level, dropping the
+     * run if it got empty.
+     */
+    private void onRemovedFromRun(final int level) {
+        runsSize--;
+        if (runs.get(level).size() == 0) {
+            runs.set(level, null);
+        }
+    }
+
+    /**
+     * @return the index of an element between from and to equal to the given
+     *         one if there is any, otherwise (-(insertion point) - 1).
+     */
+    private int search(final T[] elements, final int from, final int to, final T data) {
+        int low = from;
+        int high = to - 1;
+
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            int comparison = data.compareTo(elements[middle]);
+            if (comparison < 0) {
+                high = middle - 1;
+            } else if (comparison > 0) {
+                low = middle + 1;
+            } else {
+                return middle;
+            }
+        }
+
+        return -low - 1;
+    }
+
+    /**
+     * Gets the source whose first element is the least one, the tree before
+     * the runs and the runs before the buffer among equal elements.
+     */
+    private Source<T> getFirstSource() {
+        Source<T> first = list.size() > 0L ? new TreeSource() : null;
+        for (int level = runs.size() - 1; level >= 0; level--) {
+            if (runs.get(level) != null) {
+                first = getFirst(first, new RunSource(level));
+            }
+        }
+        return bufferSize > 0 ? getFirst(first, new BufferSource()) : first;
+    }
+
+    private Source<T> getFirst(final Source<T> current, final Source<T> candidate) {
+        return current == null || candidate.peekFirst().compareTo(current.peekFirst()) < 0 ? candidate : current;
+    }
+
+    private Source<T> getLastSource() {
+        Source<T> last = bufferSize > 0 ? new BufferSource() : null;
+        for (int level = 0; level < runs.size(); level++) {
+            if (runs.get(level) != null) {
+                last = getLast(last, new RunSource(level));
+            }
+        }
+        return list.size() > 0L ? getLast(last, new TreeSource()) : last;
+    }
+
+    private Source<T> getLast(final Source<T> current, final Source<T> candidate) {
+        return current == null || candidate.peekLast().compareTo(current.peekLast()) > 0 ? candidate : current;
+    }
+
+
+    private class Run {
+        final T[] elements;
+        int from, to;
+
+        Run(final T[] elements, final int from, final int to) {
+            this.elements = elements;
+            this.from = from;
+            this.to = to;
+        }
+
+        int size() {
+            return to - from;
+        }
+    }
+
+    /**
+     * One of the places where the elements are, seen from its ends.
+     */
+    private interface Source<T> {
+        T peekFirst();
+
+        T peekLast();
+
+        T popFirst();
+
+        T popLast();
+    }
+
+    private class TreeSource implements Source<T> {
+        @Override
+        public T peekFirst() {
+            return list.first();
+        }
+
+        @Override
+        public T peekLast() {
+            return list.last();
+        }
+
+        @Override
+        public T popFirst() {
+            return list.popFirst();
+        }
+
+        @Override
+        public T popLast() {
+            return list.popLast();
+        }
+    }
+
+    private class RunSource implements Source<T> {
+        private final int level;
+
+        RunSource(final int level) {
+            this.level = level;
+        }
+
+        @Override
+        public T peekFirst() {
+            final Run run = runs.get(level);
+            return run.elements[run.from];
+        }
+
+        @Override
+        public T peekLast() {
+            final Run run = runs.get(level);
+            return run.elements[run.to - 1];
+        }
+
+        @Override
+        public T popFirst() {
+            final Run run = runs.get(level);
+            final T data = run.elements[run.from];
+            run.elements[run.from++] = null;
+            onRemovedFromRun(level);
+            return data;
+        }
+
+        @Override
+        public T popLast() {
+            final Run run = runs.get(level);
+            final T data = run.elements[--run.to];
+            run.elements[run.to] = null;
+            onRemovedFromRun(level);
+            return data;
+        }
+    }
+
+    private class BufferSource implements Source<T> {
+        @Override
+        public T peekFirst() {
+            return buffer[0];
+        }
+
+        @Override
+        public T peekLast() {
+            return buffer[bufferSize - 1];
+        }
+
+        @Override
+        public T popFirst() {
+            final T data = buffer[0];
+            System.arraycopy(buffer, 1, buffer, 0, --bufferSize);
+            buffer[bufferSize] = null;
+            return data;
+        }
+
+        @Override
+        public T popLast() {
+            final T data = buffer[--bufferSize];
+            buffer[bufferSize] = null;
+            return data;
+        }
+    }
+
+    /**
+     * Merges the iterators of the tree, the runs and the buffer, taking each
+     * time the least of their next elements. There are O(log(f / b)) of them.
+     */
+    private class MergingIterator implements Iterator<T> {
+        private final List<Iterator<T>> iterators;
+        private final List<T> nextElements;
+        private final long expectedModCount;
+
+        MergingIterator() {
+            iterators = new ArrayList<>();
+            nextElements = new ArrayList<>();
+            expectedModCount = modCount;
+
+            add(list.iterator());
+            for (Run run : runs) {
+                if (run != null) {
+                    add(Arrays.asList(run.elements).subList(run.from, run.to).iterator());
+                }
+            }
+            add(Arrays.asList(buffer).subList(0, bufferSize).iterator());
+        }
+
+        private void add(final Iterator<T> iterator) {
+            if (iterator.hasNext()) {
+                iterators.add(iterator);
+                nextElements.add(iterator.next());
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !iterators.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            } else if (!hasNext()) {
+                return null;
+            }
+
+            int least = 0;
+            for (int i = 1; i < nextElements.size(); i++) {
+                if (nextElements.get(i).compareTo(nextElements.get(least)) < 0) {
+                    least = i;
+                }
+            }
+
+            final T result = nextElements.get(least);
+            final Iterator<T> iterator = iterators.get(least);
+            if (iterator.hasNext()) {
+                nextElements.set(least, iterator.next());
+            } else {
+                iterators.remove(least);
+                nextElements.remove(least);
+            }
+            return result;
+        }
+    }
+}
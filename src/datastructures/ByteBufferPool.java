@@ -0,0 +1,46 @@
+package datastructures;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of direct buffers of the same size, so that streaming a list does
+ * not allocate (and later free) a direct buffer every time.
+ *
+ * @author Egar Garcia
+ */
+final class ByteBufferPool {
+
+    static final ByteBufferPool SHARED = new ByteBufferPool(64 * 1024, 16);
+
+    private final ConcurrentLinkedQueue<ByteBuffer> buffers;
+    private final AtomicInteger pooled;
+    private final int bufferSize;
+    private final int maxPooled;
+
+    ByteBufferPool(final int bufferSize, final int maxPooled) {
+        buffers = new ConcurrentLinkedQueue<>();
+        pooled = new AtomicInteger();
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    ByteBuffer acquire() {
+        final ByteBuffer buffer = buffers.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        pooled.decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    void release(final ByteBuffer buffer) {
+        if (pooled.incrementAndGet() <= maxPooled) {
+            buffers.offer(buffer);
+        } else {
+            pooled.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,528 @@
+package datastructures;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * A SortedTreeList whose nodes are not objects but slots in parallel arrays:
+ * the tree and list links are int indices, the heights are bytes and the
+ * slots of removed elements are reused through a free list. This saves most
+ * of the per-element overhead, and gives the garbage collector a handful of
+ * arrays to trace instead of a node per element.
+ *
+ * The TreeNode and ListNode objects given by this list are views created on
+ * demand, which are only valid while their element is in the list.
+ *
+ * @author Egar Garcia
+ *
+ * @param <T>
+ */
+public class CompactSortedTreeList<T extends Comparable<T>> {
+
+    private static final int NIL = -1;
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private Object[] data;
+    private int[] left, right, parent, prev, next;
+    private byte[] height;
+
+    private int root, head, tail;
+    private int freeHead, used;
+    private long size;
+    private boolean allowRepetitions;
+
+    public CompactSortedTreeList(final boolean allowRepetitions, final int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+        }
+
+        data = new Object[initialCapacity];
+        left = new int[initialCapacity];
+        right = new int[initialCapacity];
+        parent = new int[initialCapacity];
+        prev = new int[initialCapacity];
+        next = new int[initialCapacity];
+        height = new byte[initialCapacity];
+
+        root = head = tail = NIL;
+        freeHead = NIL;
+        used = 0;
+        size = 0L;
+        this.allowRepetitions = allowRepetitions;
+    }
+
+    public CompactSortedTreeList(final boolean allowRepetitions) {
+        this(allowRepetitions, DEFAULT_CAPACITY);
+    }
+
+    public CompactSortedTreeList() {
+        this(false);
+    }
+
+    public TreeNode<T> getRoot() {
+        return view(root);
+    }
+
+    public ListNode<T> getHead() {
+        return view(head);
+    }
+
+    public ListNode<T> getTail() {
+        return view(tail);
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public T first() {
+        return head != NIL ? dataAt(head) : null;
+    }
+
+    public T last() {
+        return tail != NIL ? dataAt(tail) : null;
+    }
+
+    public void insert(final T element) {
+        doInsert(element);
+    }
+
+    public boolean contains(final T element) {
+        return doFind(element) != NIL;
+    }
+
+    public ListNode<T> find(final T element) {
+        return view(doFind(element));
+    }
+
+    public ListNode<T> findFirst(final T element) {
+        return view(findFirstFirstOrLast(element, true));
+    }
+
+    public ListNode<T> findLast(final T element) {
+        return view(findFirstFirstOrLast(element, false));
+    }
+
+    public T popFirst() {
+        if (head == NIL) {
+            return null;
+        }
+        final T result = dataAt(head);
+        removeNode(head);
+        return result;
+    }
+
+    public T popLast() {
+        if (tail == NIL) {
+            return null;
+        }
+        final T result = dataAt(tail);
+        removeNode(tail);
+        return result;
+    }
+
+    public void remove(final T element) {
+        final int n = doFind(element);
+        if (n != NIL) {
+            removeNode(n);
+        }
+    }
+
+    public Iterator<T> iterator() {
+        return new TreeListIterator(head);
+    }
+
+    /**
+     * Shrinks the arrays to the number of slots in use, which after removals
+     * may still be more than the size since freed slots are not compacted.
+     */
+    public void trimToSize() {
+        resize(used);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T dataAt(final int n) {
+        return (T) data[n];
+    }
+
+    private NodeView view(final int n) {
+        return n != NIL ? new NodeView(n) : null;
+    }
+
+    private void resize(final int capacity) {
+        data = Arrays.copyOf(data, capacity);
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        parent = Arrays.copyOf(parent, capacity);
+        prev = Arrays.copyOf(prev, capacity);
+        next = Arrays.copyOf(next, capacity);
+        height = Arrays.copyOf(height, capacity);
+    }
+
+    private int allocate(final T element, final int parentNode) {
+        final int n;
+        if (freeHead != NIL) {
+            n = freeHead;
+            freeHead = next[n];
+        } else {
+            if (used == data.length) {
+                resize(Math.max(DEFAULT_CAPACITY, data.length + (data.length >> 1)));
+            }
+            n = used++;
+        }
+
+        data[n] = element;
+        left[n] = right[n] = prev[n] = next[n] = NIL;
+        parent[n] = parentNode;
+        height[n] = 0;
+        size++;
+        return n;
+    }
+
+    private void free(final int n) {
+        data[n] = null;
+        left[n] = right[n] = parent[n] = prev[n] = NIL;
+        next[n] = freeHead;
+        freeHead = n;
+        size--;
+    }
+
+    private void insertBeforeInList(final int target, final int n) {
+        prev[n] = prev[target];
+        next[n] = target;
+
+        if (prev[target] != NIL) {
+            next[prev[target]] = n;
+        } else {
+            head = n;
+        }
+        prev[target] = n;
+    }
+
+    private void insertAfterInList(final int target, final int n) {
+        prev[n] = target;
+        next[n] = next[target];
+
+        if (next[target] != NIL) {
+            prev[next[target]] = n;
+        } else {
+            tail = n;
+        }
+        next[target] = n;
+    }
+
+    private int insertLeftInTree(final int target, final T element) {
+        final int n = allocate(element, target);
+        left[target] = n;
+        insertBeforeInList(target, n);
+        return n;
+    }
+
+    private int insertRightInTree(final int target, final T element) {
+        final int n = allocate(element, target);
+        right[target] = n;
+        insertAfterInList(target, n);
+        return n;
+    }
+
+    private int getHeight(final int n) {
+        return n != NIL ? height[n] : -1;
+    }
+
+    private int getBalanceFactor(final int n) {
+        return getHeight(left[n]) - getHeight(right[n]);
+    }
+
+    private void setHeight(final int n) {
+        height[n] = (byte) (1 + Math.max(getHeight(left[n]), getHeight(right[n])));
+    }
+
+    private void swapChild(final int parentNode, final int currentChild, final int newChild) {
+        if (parentNode != NIL) {
+            if (left[parentNode] == currentChild) {
+                left[parentNode] = newChild;
+            } else {
+                right[parentNode] = newChild;
+            }
+        } else {
+            root = newChild;
+        }
+    }
+
+    private int rotateLeft(final int n) {
+        final int newRoot = right[n];
+        right[n] = left[newRoot];
+        left[newRoot] = n;
+
+        swapChild(parent[n], n, newRoot);
+        parent[newRoot] = parent[n];
+        parent[n] = newRoot;
+        if (right[n] != NIL) {
+            parent[right[n]] = n;
+        }
+
+        setHeight(n);
+        setHeight(newRoot);
+
+        return newRoot;
+    }
+
+    private int rotateRight(final int n) {
+        final int newRoot = left[n];
+        left[n] = right[newRoot];
+        right[newRoot] = n;
+
+        swapChild(parent[n], n, newRoot);
+        parent[newRoot] = parent[n];
+        parent[n] = newRoot;
+        if (left[n] != NIL) {
+            parent[left[n]] = n;
+        }
+
+        setHeight(n);
+        setHeight(newRoot);
+
+        return newRoot;
+    }
+
+    private int balance(final int n) {
+        final int balanceFactor = getBalanceFactor(n);
+
+        if (balanceFactor >= 2) {
+            if (getBalanceFactor(left[n]) <= -1) {
+                rotateLeft(left[n]);
+                setHeight(n);
+            }
+            return rotateRight(n);
+        } else if (balanceFactor <= -2) {
+            if (getBalanceFactor(right[n]) >= 1) {
+                rotateRight(right[n]);
+                setHeight(n);
+            }
+            return rotateLeft(n);
+        }
+        return n;
+    }
+
+    private void andjustAndBalanceUpToRoot(final int n) {
+        int current = n;
+
+        while (current != NIL) {
+            setHeight(current);
+            current = balance(current);
+            current = parent[current];
+        }
+    }
+
+    private int doInsert(final T element) {
+        if (root == NIL) {
+            root = head = tail = allocate(element, NIL);
+            return root;
+        }
+
+        // Fast path for keys arriving in ascending order: the tail is the
+        // rightmost node, so it has no right child. An element equal to the
+        // tail goes through the descent, which places it before its equals.
+        int comparison = element.compareTo(dataAt(tail));
+        if (comparison > 0) {
+            final int n = insertRightInTree(tail, element);
+            andjustAndBalanceUpToRoot(parent[n]);
+            return n;
+        } else if (comparison == 0 && !allowRepetitions) {
+            return NIL;
+        }
+
+        int current = NIL;
+        int target = root;
+        int n = NIL;
+
+        while (target != NIL) {
+            current = target;
+
+            comparison = element.compareTo(dataAt(current));
+            if (comparison < 0 || (comparison == 0 && allowRepetitions)) {
+                target = left[current];
+                if (target == NIL) {
+                    n = insertLeftInTree(current, element);
+                }
+            } else if (comparison > 0) {
+                target = right[current];
+                if (target == NIL) {
+                    n = insertRightInTree(current, element);
+                }
+            } else {
+                return NIL;
+            }
+        }
+
+        andjustAndBalanceUpToRoot(current);
+
+        return n;
+    }
+
+    private int doFind(final T element) {
+        int current = root;
+
+        while (current != NIL) {
+            int comparison = element.compareTo(dataAt(current));
+            if (comparison < 0) {
+                current = left[current];
+            } else if (comparison > 0) {
+                current = right[current];
+            } else {
+                return current;
+            }
+        }
+
+        return NIL;
+    }
+
+    private int findClosest(final T element, final boolean before) {
+        int current = NIL;
+        int target = root;
+
+        while (target != NIL) {
+            current = target;
+
+            int comparison = element.compareTo(dataAt(current));
+            if (comparison < 0 || (before && comparison == 0)) {
+                target = left[current];
+            } else {
+                target = right[current];
+            }
+        }
+
+        return current;
+    }
+
+    private int findFirstFirstOrLast(final T element, final boolean first) {
+        final int closests = findClosest(element, first);
+        if (closests != NIL) {
+            final int neighbour = first ? next[closests] : prev[closests];
+            if (dataAt(closests).equals(element)) {
+                return closests;
+            } else if (neighbour != NIL && dataAt(neighbour).equals(element)) {
+                return neighbour;
+            }
+        }
+        return NIL;
+    }
+
+    private void removeNodeInList(final int n) {
+        if (prev[n] == NIL) {
+            head = next[n];
+        } else {
+            next[prev[n]] = next[n];
+        }
+
+        if (next[n] == NIL) {
+            tail = prev[n];
+        } else {
+            prev[next[n]] = prev[n];
+        }
+    }
+
+    private void removeNodeInTree(final int n) {
+        final int rebalanceFrom;
+
+        if (left[n] == NIL || right[n] == NIL) {
+            final int child = left[n] != NIL ? left[n] : right[n];
+            if (child != NIL) {
+                parent[child] = parent[n];
+            }
+            swapChild(parent[n], n, child);
+            rebalanceFrom = parent[n];
+        } else {
+            // The successor is the leftmost node of the right subtree, so it
+            // has no left child and can take the place of the removed node.
+            final int successor = next[n];
+            if (parent[successor] != n) {
+                rebalanceFrom = parent[successor];
+                left[rebalanceFrom] = right[successor];
+                if (right[successor] != NIL) {
+                    parent[right[successor]] = rebalanceFrom;
+                }
+                right[successor] = right[n];
+                parent[right[n]] = successor;
+            } else {
+                rebalanceFrom = successor;
+            }
+
+            left[successor] = left[n];
+            parent[left[n]] = successor;
+            parent[successor] = parent[n];
+            swapChild(parent[n], n, successor);
+            height[successor] = height[n];
+        }
+
+        andjustAndBalanceUpToRoot(rebalanceFrom);
+    }
+
+    private void removeNode(final int n) {
+        removeNodeInTree(n);
+        removeNodeInList(n);
+        free(n);
+    }
+
+
+    private class NodeView implements TreeNode<T>, ListNode<T> {
+        private final int n;
+
+        NodeView(final int n) {
+            this.n = n;
+        }
+
+        @Override
+        public ListNode<T> getPrev() {
+            return view(prev[n]);
+        }
+
+        @Override
+        public ListNode<T> getNext() {
+            return view(next[n]);
+        }
+
+        @Override
+        public TreeNode<T> getLeft() {
+            return view(left[n]);
+        }
+
+        @Override
+        public TreeNode<T> getRight() {
+            return view(right[n]);
+        }
+
+        @Override
+        public TreeNode<T> getParent() {
+            return view(parent[n]);
+        }
+
+        @Override
+        public T getData() {
+            return dataAt(n);
+        }
+    }
+
+    private class TreeListIterator implements Iterator<T> {
+        private int current;
+
+        TreeListIterator(final int current) {
+            this.current = current;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return current != NIL;
+        }
+
+        @Override
+        public T next() {
+            if (current == NIL) {
+                return null;
+            }
+            final T result = dataAt(current);
+            current = next[current];
+            return result;
+        }
+    }
+}
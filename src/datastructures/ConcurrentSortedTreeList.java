@@ -0,0 +1,270 @@
+package datastructures;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+
+/**
+ * A thread-safe SortedTreeList guarded by a StampedLock. Writes take the
+ * write lock, while reads first run optimistically without locking at all
+ * and are only repeated under the read lock if a write happened meanwhile,
+ * so readers neither block each other nor write to shared memory.
+ *
+ * Since the nodes keep changing under concurrent writes, they are not handed
+ * out: lookups give the elements instead. Iterators are weakly consistent,
+ * they fetch the elements in chunks, each one consistent by itself, and may
+ * or may not reflect the writes done after they were created.
+ *
+ * @author Egar Garcia
+ *
+ * @param <T>
+ */
+public class ConcurrentSortedTreeList<T extends Comparable<T>> implements Iterable<T> {
+
+    private static final int CHUNK_SIZE = 64;
+
+    private final SortedTreeList<T> list;
+    private final StampedLock lock;
+
+    public ConcurrentSortedTreeList(final boolean allowRepetitions, final boolean countRepetitions,
+            final BalancingPolicy balancingPolicy) {
+        list = new SortedTreeList<>(allowRepetitions, countRepetitions, balancingPolicy);
+        lock = new StampedLock();
+    }
+
+    public ConcurrentSortedTreeList(final boolean allowRepetitions) {
+        this(allowRepetitions, false, BalancingPolicy.AVL);
+    }
+
+    public ConcurrentSortedTreeList() {
+        this(false);
+    }
+
+    public long size() {
+        return read(list::size);
+    }
+
+    public T first() {
+        return read(list::first);
+    }
+
+    public T last() {
+        return read(list::last);
+    }
+
+    public boolean contains(final T data) {
+        return read(() -> list.contains(data));
+    }
+
+    /**
+     * Gets the element of the list equal to the given one, or null if it is
+     * not contained.
+     */
+    public T find(final T data) {
+        return read(() -> {
+            final ListNode<T> node = list.find(data);
+            return node != null ? node.getData() : null;
+        });
+    }
+
+    public long count(final T data) {
+        return read(() -> list.count(data));
+    }
+
+    public T get(final long index) {
+        return read(() -> list.get(index));
+    }
+
+    public long rank(final T data) {
+        return read(() -> list.rank(data));
+    }
+
+    public long countBetween(final T from, final T to) {
+        return read(() -> list.countBetween(from, to));
+    }
+
+    public void insert(final T data) {
+        final long stamp = lock.writeLock();
+        try {
+            list.insert(data);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void insertAll(final Collection<? extends T> data) {
+        final long stamp = lock.writeLock();
+        try {
+            list.insertAll(data);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void remove(final T data) {
+        final long stamp = lock.writeLock();
+        try {
+            list.remove(data);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public T popFirst() {
+        final long stamp = lock.writeLock();
+        try {
+            return list.popFirst();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public T popLast() {
+        final long stamp = lock.writeLock();
+        try {
+            return list.popLast();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new WeaklyConsistentIterator(null, true, null, true);
+    }
+
+    /**
+     * Gets a view of the elements between from and to, whose iterators are
+     * weakly consistent. A null bound means that the range is unbounded on
+     * that side.
+     */
+    public Iterable<T> range(final T from, final boolean fromInclusive, final T to, final boolean toInclusive) {
+        return () -> new WeaklyConsistentIterator(from, fromInclusive, to, toInclusive);
+    }
+
+    public Iterable<T> headList(final T to, final boolean inclusive) {
+        return range(null, true, to, inclusive);
+    }
+
+    public Iterable<T> tailList(final T from, final boolean inclusive) {
+        return range(from, inclusive, null, true);
+    }
+
+    private <R> R read(final Supplier<R> reader) {
+        return read(stamp -> reader.get());
+    }
+
+    /**
+     * Runs a read optimistically, which a concurrent write can make see an
+     * inconsistent state (even throwing an exception), so it is only taken
+     * if the stamp is still valid, otherwise it is run again under the read
+     * lock. The descents of the list give up when going deeper than its
+     * height allows, so they cannot go round in circles through nodes being
+     * rotated, and the reader is given the optimistic stamp (or 0 under the
+     * read lock) to validate it along longer traversals.
+     */
+    private <R> R read(final LongFunction<R> reader) {
+        final long optimisticStamp = lock.tryOptimisticRead();
+        if (optimisticStamp != 0L) {
+            try {
+                final R result = reader.apply(optimisticStamp);
+                if (lock.validate(optimisticStamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                // Retried under the read lock, where a genuine error is thrown again.
+            }
+        }
+
+        final long stamp = lock.readLock();
+        try {
+            return reader.apply(0L);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+
+    private class WeaklyConsistentIterator implements Iterator<T> {
+        private final T from, to;
+        private final boolean fromInclusive, toInclusive;
+        private List<T> chunk;
+        private int position;
+        private boolean exhausted;
+        private T last;
+        private long lastRepetitions;
+
+        WeaklyConsistentIterator(final T from, final boolean fromInclusive, final T to, final boolean toInclusive) {
+            this.from = from;
+            this.fromInclusive = fromInclusive;
+            this.to = to;
+            this.toInclusive = toInclusive;
+            chunk = new ArrayList<>();
+            position = 0;
+            exhausted = false;
+            last = null;
+            lastRepetitions = 0L;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (position == chunk.size() && !exhausted) {
+                chunk = read(this::fetchChunk);
+                position = 0;
+                exhausted = chunk.size() < CHUNK_SIZE;
+            }
+            return position < chunk.size();
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                return null;
+            }
+
+            final T data = chunk.get(position++);
+            if (last != null && data.compareTo(last) == 0) {
+                lastRepetitions++;
+            } else {
+                last = data;
+                lastRepetitions = 1L;
+            }
+            return data;
+        }
+
+        /**
+         * Gets the next elements after the last one given, skipping its
+         * repetitions that were already given too. Since there can be many
+         * of them, the optimistic stamp (unless it is 0) is validated every
+         * CHUNK_SIZE steps.
+         */
+        private List<T> fetchChunk(final long stamp) {
+            final List<T> elements = new ArrayList<>(CHUNK_SIZE);
+            final Iterator<T> iterator = last == null
+                    ? list.range(from, fromInclusive, to, toInclusive).iterator()
+                    : list.range(last, true, to, toInclusive).iterator();
+
+            long skip = last == null ? 0L : lastRepetitions;
+            long steps = 0L;
+            while (elements.size() < CHUNK_SIZE && iterator.hasNext()) {
+                if (stamp != 0L && ++steps % CHUNK_SIZE == 0L && !lock.validate(stamp)) {
+                    throw new ConcurrentModificationException();
+                }
+                final T data = iterator.next();
+                if (skip > 0L && data.compareTo(last) == 0) {
+                    skip--;
+                } else {
+                    skip = 0L;
+                    elements.add(data);
+                }
+            }
+
+            return elements;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package datastructures;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads the elements written by an Encoder, for SortedTreeList.readFrom.
+ * It is reset at the beginning of every block, like the encoder was.
+ *
+ * @param <T>
+ */
+public interface Decoder<T> {
+    public T decode(ByteBuffer buffer);
+
+    public default void reset() {
+    }
+}
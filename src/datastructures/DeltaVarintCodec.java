@@ -0,0 +1,87 @@
+package datastructures;
+
+import java.nio.ByteBuffer;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Encodes numeric keys as the difference from the previous key of the
+ * block, written as a variable-length integer of seven bits per byte, so
+ * that sorted keys close to each other take one or two bytes instead of
+ * eight. The differences are taken modulo 2^64, so any sequence can be
+ * decoded back, although only sorted ones are compact.
+ *
+ * The codec keeps the previous key, so an instance must not be used by two
+ * streams at the same time.
+ *
+ * @author Egar Garcia
+ *
+ * @param <T>
+ */
+public class DeltaVarintCodec<T> implements Encoder<T>, Decoder<T> {
+
+    private final ToLongFunction<T> toLong;
+    private final LongFunction<T> fromLong;
+    private long previous;
+
+    public DeltaVarintCodec(final ToLongFunction<T> toLong, final LongFunction<T> fromLong) {
+        this.toLong = toLong;
+        this.fromLong = fromLong;
+        previous = 0L;
+    }
+
+    public static DeltaVarintCodec<Long> ofLongs() {
+        return new DeltaVarintCodec<>(Long::longValue, Long::valueOf);
+    }
+
+    public static DeltaVarintCodec<Integer> ofIntegers() {
+        return new DeltaVarintCodec<>(Integer::longValue, value -> (int) value);
+    }
+
+    @Override
+    public void encode(final T data, final ByteBuffer buffer) {
+        final long value = toLong.applyAsLong(data);
+        putVarLong(buffer, value - previous);
+        previous = value;
+    }
+
+    @Override
+    public T decode(final ByteBuffer buffer) {
+        previous += getVarLong(buffer);
+        return fromLong.apply(previous);
+    }
+
+    @Override
+    public void reset() {
+        previous = 0L;
+    }
+
+    /**
+     * Writes a value as an unsigned variable-length integer, the lowest seven
+     * bits first and the highest bit of every byte telling whether more
+     * follow.
+     */
+    static void putVarLong(final ByteBuffer buffer, final long value) {
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0L) {
+            buffer.put((byte) ((remaining & 0x7FL) | 0x80L));
+            remaining >>>= 7;
+        }
+        buffer.put((byte) remaining);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the value takes more than ten bytes.
+     */
+    static long getVarLong(final ByteBuffer buffer) {
+        long value = 0L;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            final byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed variable-length integer");
+    }
+}
@@ -0,0 +1,21 @@
+package datastructures;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Writes elements into a buffer, for SortedTreeList.writeTo. It is called
+ * for the elements in sorted order, and reset at the beginning of every
+ * block so that a stateful (e.g. delta) encoding never spans blocks.
+ *
+ * @param <T>
+ */
+public interface Encoder<T> {
+    /**
+     * @throws java.nio.BufferOverflowException if the element does not fit
+     *         in the remaining space of the buffer.
+     */
+    public void encode(T data, ByteBuffer buffer);
+
+    public default void reset() {
+    }
+}
@@ -0,0 +1,13 @@
+package datastructures;
+
+/**
+ * The end from which a SortedTreeList with a capacity evicts elements when
+ * it is full: LAST keeps the smallest ones (a bottom-k) and FIRST keeps the
+ * largest ones (a top-k).
+ *
+ * @author Egar Garcia
+ */
+public enum EvictionSide {
+    FIRST,
+    LAST
+}
@@ -0,0 +1,7 @@
+package datastructures;
+
+public interface IntListNode {
+    public IntListNode getPrev();
+    public IntListNode getNext();
+    public int getData();
+}
@@ -0,0 +1,8 @@
+package datastructures;
+
+public interface IntTreeNode {
+    public IntTreeNode getLeft();
+    public IntTreeNode getRight();
+    public IntTreeNode getParent();
+    public int getData();
+}
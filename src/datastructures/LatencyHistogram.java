@@ -0,0 +1,64 @@
+package datastructures;
+
+/**
+ * A histogram of latencies in nanoseconds with a bucket per power of two,
+ * so that recording costs a couple of instructions and the percentiles are
+ * exact up to a factor of two.
+ *
+ * @author Egar Garcia
+ */
+public final class LatencyHistogram {
+
+    // The bucket i holds the latencies of i bits, that is in [2^(i-1), 2^i).
+    private final long[] buckets;
+    private long count;
+
+    LatencyHistogram() {
+        buckets = new long[Long.SIZE + 1];
+        count = 0L;
+    }
+
+    LatencyHistogram(final LatencyHistogram histogram) {
+        buckets = histogram.buckets.clone();
+        count = histogram.count;
+    }
+
+    void record(final long nanos) {
+        buckets[Long.SIZE - Long.numberOfLeadingZeros(Math.max(0L, nanos))]++;
+        count++;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the number of latencies in every bucket, the bucket i holding the
+     * ones in [2^(i-1), 2^i) nanoseconds.
+     */
+    public long[] getBuckets() {
+        return buckets.clone();
+    }
+
+    /**
+     * Gets an upper bound (at most twice as much) of the latency below which
+     * the given percentage of the latencies are, or 0 if there are none.
+     *
+     * @throws IllegalArgumentException if the percentile is not in [0, 100].
+     */
+    public long getPercentile(final double percentile) {
+        if (percentile < 0.0 || percentile > 100.0) {
+            throw new IllegalArgumentException("The percentile must be between 0 and 100");
+        } else if (count == 0L) {
+            return 0L;
+        }
+
+        final long rank = Math.max(1L, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0L;
+        int i = 0;
+        while (seen + buckets[i] < rank) {
+            seen += buckets[i++];
+        }
+        return (1L << i) - 1;
+    }
+}
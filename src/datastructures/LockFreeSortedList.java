@@ -0,0 +1,358 @@
+package datastructures;
+
+import java.lang.reflect.Array;
+import java.util.Iterator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicMarkableReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free sorted list with the operations of SortedTreeList, so it can be
+ * used by many producers and consumers at once as a priority queue or an
+ * ordered index. It is a skip list whose links are compare-and-set, a node
+ * being logically removed by marking its links and physically unlinked by
+ * whichever thread finds it next.
+ *
+ * Repetitions are kept in insertion order by tagging each node with a
+ * sequence number. Nodes are given as ListNode views: following getNext is
+ * lock-free, while getPrev searches for the predecessor in O(log n) since the
+ * bottom level is only linked forwards. The size is exact when there are no
+ * concurrent updates.
+ *
+ * @author Egar Garcia
+ *
+ * @param <T>
+ */
+public class LockFreeSortedList<T extends Comparable<T>> implements Iterable<T> {
+
+    private static final int MAX_LEVEL = 32;
+
+    private final Node head;
+    private final LongAdder size;
+    private final AtomicLong sequence;
+    private final boolean allowRepetitions;
+
+    public LockFreeSortedList(final boolean allowRepetitions) {
+        head = new Node(null, Long.MIN_VALUE, MAX_LEVEL - 1);
+        size = new LongAdder();
+        sequence = new AtomicLong();
+        this.allowRepetitions = allowRepetitions;
+    }
+
+    public LockFreeSortedList() {
+        this(false);
+    }
+
+    public ListNode<T> getHead() {
+        return nextUnmarked(head, 0);
+    }
+
+    public ListNode<T> getTail() {
+        final Node last = lastBefore(null, Long.MAX_VALUE);
+        return last != head ? last : null;
+    }
+
+    public long size() {
+        return size.sum();
+    }
+
+    public T first() {
+        final Node first = nextUnmarked(head, 0);
+        return first != null ? first.data : null;
+    }
+
+    public T last() {
+        final Node last = lastBefore(null, Long.MAX_VALUE);
+        return last != head ? last.data : null;
+    }
+
+    /**
+     * Inserts an element, after its repetitions if they are allowed.
+     *
+     * @return the node of the inserted element, or null if it was not
+     *         inserted because it was repeated.
+     */
+    public ListNode<T> insert(final T data) {
+        // Without repetitions all the nodes share the same sequence number,
+        // so an equal element is found as an equal key.
+        final long seq = allowRepetitions ? sequence.getAndIncrement() : 0L;
+        final int topLevel = randomLevel();
+        final Node[] preds = newNodeArray();
+        final Node[] succs = newNodeArray();
+
+        while (true) {
+            if (find(data, seq, preds, succs)) {
+                return null;
+            }
+
+            final Node newNode = new Node(data, seq, topLevel);
+            for (int level = 0; level <= topLevel; level++) {
+                newNode.next[level].set(succs[level], false);
+            }
+            if (!preds[0].next[0].compareAndSet(succs[0], newNode, false, false)) {
+                continue;
+            }
+            size.increment();
+
+            for (int level = 1; level <= topLevel; level++) {
+                while (true) {
+                    final Node succ = newNode.next[level].getReference();
+                    if (newNode.next[level].isMarked()) {
+                        // Already being removed, no need to link it further.
+                        return newNode;
+                    }
+                    if ((succ == succs[level] || newNode.next[level].compareAndSet(succ, succs[level], false, false))
+                            && preds[level].next[level].compareAndSet(succs[level], newNode, false, false)) {
+                        break;
+                    }
+                    find(data, seq, preds, succs);
+                }
+            }
+
+            return newNode;
+        }
+    }
+
+    public boolean contains(final T data) {
+        return findFirstNode(data) != null;
+    }
+
+    public ListNode<T> find(final T data) {
+        return findFirstNode(data);
+    }
+
+    public ListNode<T> findFirst(final T data) {
+        return findFirstNode(data);
+    }
+
+    public ListNode<T> findLast(final T data) {
+        final Node last = lastBefore(data, Long.MAX_VALUE);
+        return last != head && data.compareTo(last.data) == 0 ? last : null;
+    }
+
+    public T popFirst() {
+        while (true) {
+            final Node first = nextUnmarked(head, 0);
+            if (first == null) {
+                return null;
+            } else if (removeNode(first)) {
+                return first.data;
+            }
+        }
+    }
+
+    public T popLast() {
+        while (true) {
+            final Node last = lastBefore(null, Long.MAX_VALUE);
+            if (last == head) {
+                return null;
+            } else if (removeNode(last)) {
+                return last.data;
+            }
+        }
+    }
+
+    /**
+     * Removes the first occurrence of an element.
+     *
+     * @return whether an occurrence was removed by this call.
+     */
+    public boolean remove(final T data) {
+        while (true) {
+            final Node first = findFirstNode(data);
+            if (first == null) {
+                return false;
+            } else if (removeNode(first)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gets a weakly consistent iterator, which gives the elements in order
+     * and may or may not reflect the updates done after it was created.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new SkipListIterator(nextUnmarked(head, 0));
+    }
+
+    private int compare(final T data, final long seq, final Node n) {
+        if (data == null) {
+            return 1;
+        }
+        final int comparison = data.compareTo(n.data);
+        return comparison != 0 ? comparison : Long.compare(seq, n.seq);
+    }
+
+    private int randomLevel() {
+        return Integer.numberOfTrailingZeros(ThreadLocalRandom.current().nextInt() | (1 << (MAX_LEVEL - 1)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Node[] newNodeArray() {
+        return (Node[]) Array.newInstance(Node.class, MAX_LEVEL);
+    }
+
+    /**
+     * Finds the predecessors and successors of a key at every level,
+     * unlinking on the way the nodes that were marked as removed.
+     *
+     * @return whether a node with the key is in the list.
+     */
+    private boolean find(final T data, final long seq, final Node[] preds, final Node[] succs) {
+        final boolean[] marked = {false};
+
+        retry:
+        while (true) {
+            Node pred = head;
+            for (int level = MAX_LEVEL - 1; level >= 0; level--) {
+                Node curr = pred.next[level].getReference();
+                while (curr != null) {
+                    Node succ = curr.next[level].get(marked);
+                    while (marked[0]) {
+                        if (!pred.next[level].compareAndSet(curr, succ, false, false)) {
+                            continue retry;
+                        }
+                        curr = succ;
+                        if (curr == null) {
+                            break;
+                        }
+                        succ = curr.next[level].get(marked);
+                    }
+
+                    if (curr != null && compare(data, seq, curr) > 0) {
+                        pred = curr;
+                        curr = succ;
+                    } else {
+                        break;
+                    }
+                }
+                preds[level] = pred;
+                succs[level] = curr;
+            }
+
+            return succs[0] != null && compare(data, seq, succs[0]) == 0;
+        }
+    }
+
+    /**
+     * Gets the last node whose key is less than the given one (or the head),
+     * without unlinking anything, so it never has to start over.
+     */
+    private Node lastBefore(final T data, final long seq) {
+        Node pred = head;
+
+        for (int level = MAX_LEVEL - 1; level >= 0; level--) {
+            Node curr = nextUnmarked(pred, level);
+            while (curr != null && compare(data, seq, curr) > 0) {
+                pred = curr;
+                curr = nextUnmarked(pred, level);
+            }
+        }
+
+        return pred;
+    }
+
+    private Node nextUnmarked(final Node n, final int level) {
+        Node current = n.next[level].getReference();
+        while (current != null && current.next[level].isMarked()) {
+            current = current.next[level].getReference();
+        }
+        return current;
+    }
+
+    private Node findFirstNode(final T data) {
+        final Node first = nextUnmarked(lastBefore(data, Long.MIN_VALUE), 0);
+        return first != null && data.compareTo(first.data) == 0 ? first : null;
+    }
+
+    /**
+     * Marks a node as removed, from the top level down to the bottom one,
+     * the removal being done by whoever marks the bottom level.
+     *
+     * @return whether the node was removed by this call.
+     */
+    private boolean removeNode(final Node n) {
+        final boolean[] marked = {false};
+
+        for (int level = n.topLevel; level >= 1; level--) {
+            Node succ = n.next[level].get(marked);
+            while (!marked[0]) {
+                n.next[level].compareAndSet(succ, succ, false, true);
+                succ = n.next[level].get(marked);
+            }
+        }
+
+        Node succ = n.next[0].get(marked);
+        while (!marked[0]) {
+            if (n.next[0].compareAndSet(succ, succ, false, true)) {
+                size.decrement();
+                find(n.data, n.seq, newNodeArray(), newNodeArray());
+                return true;
+            }
+            succ = n.next[0].get(marked);
+        }
+
+        return false;
+    }
+
+
+    private class Node implements ListNode<T> {
+        final T data;
+        final long seq;
+        final int topLevel;
+        final AtomicMarkableReference<Node>[] next;
+
+        @SuppressWarnings("unchecked")
+        Node(final T data, final long seq, final int topLevel) {
+            this.data = data;
+            this.seq = seq;
+            this.topLevel = topLevel;
+            next = (AtomicMarkableReference<Node>[]) new AtomicMarkableReference<?>[topLevel + 1];
+            for (int level = 0; level <= topLevel; level++) {
+                next[level] = new AtomicMarkableReference<>(null, false);
+            }
+        }
+
+        @Override
+        public ListNode<T> getPrev() {
+            final Node prev = lastBefore(data, seq);
+            return prev != head ? prev : null;
+        }
+
+        @Override
+        public ListNode<T> getNext() {
+            return nextUnmarked(this, 0);
+        }
+
+        @Override
+        public T getData() {
+            return data;
+        }
+    }
+
+    private class SkipListIterator implements Iterator<T> {
+        private Node current;
+
+        SkipListIterator(final Node current) {
+            this.current = current;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return current != null;
+        }
+
+        @Override
+        public T next() {
+            if (current == null) {
+                return null;
+            }
+            final T data = current.data;
+            current = nextUnmarked(current, 0);
+            return data;
+        }
+    }
+}
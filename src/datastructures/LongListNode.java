@@ -0,0 +1,7 @@
+package datastructures;
+
+public interface LongListNode {
+    public LongListNode getPrev();
+    public LongListNode getNext();
+    public long getData();
+}
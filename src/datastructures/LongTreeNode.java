@@ -0,0 +1,8 @@
+package datastructures;
+
+public interface LongTreeNode {
+    public LongTreeNode getLeft();
+    public LongTreeNode getRight();
+    public LongTreeNode getParent();
+    public long getData();
+}
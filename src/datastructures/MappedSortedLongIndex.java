@@ -0,0 +1,563 @@
+package datastructures;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * A sorted index of long elements kept in a memory-mapped file, for indexes
+ * that do not fit in the heap. The elements are stored in sorted pages of
+ * fixed size linked in order, like the leaves of a B+-tree, and the heap
+ * only holds a summary with the first element and the number of every page
+ * (a single level of separators, since a page holds hundreds of elements).
+ *
+ * A search is a binary search over the summary followed by a binary search
+ * within a page. A full page is split in two, or when appending at the end
+ * a new page is started, so ascending loads fill the pages completely. A
+ * page is only freed (to be reused) when it becomes empty. Iterating reads
+ * the pages one after the other directly from the mapping, without creating
+ * an object per element.
+ *
+ * The nodes given by findFirst and findLast are positions in the pages, so
+ * they (as well as the iterators) are invalidated by any update. The file is
+ * written through the mapping: flush forces it to the disk, and close should
+ * be called when done.
+ *
+ * @author Egar Garcia
+ */
+public class MappedSortedLongIndex implements Closeable {
+
+    private static final int MAGIC = 0x4d534c49;
+    private static final int PAGE_SIZE = 4096;
+    private static final int PAGE_HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int PAGE_CAPACITY = (PAGE_SIZE - PAGE_HEADER_SIZE) / Long.BYTES;
+    private static final int REGION_PAGES = 1024;
+    private static final long REGION_SIZE = (long) REGION_PAGES * PAGE_SIZE;
+
+    // Offsets of the fields of the header, which takes the page 0.
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_PAGE_SIZE = 4;
+    private static final int HEADER_ALLOW_REPETITIONS = 8;
+    private static final int HEADER_FIRST_PAGE = 12;
+    private static final int HEADER_ALLOCATED_PAGES = 16;
+    private static final int HEADER_SIZE = 24;
+
+    private final FileChannel channel;
+    private final List<MappedByteBuffer> regions;
+    private final boolean allowRepetitions;
+
+    // The summary: the first element and the number of every page, in order.
+    private long[] firstElements;
+    private int[] pages;
+    private int pageCount;
+
+    private int[] freePages;
+    private int freePageCount;
+    private int allocatedPages;
+    private long size;
+    private long modCount;
+
+    /**
+     * Opens the index stored in a file, creating it if the file does not
+     * exist or is empty.
+     *
+     * @throws IllegalArgumentException if the index in the file was created
+     *         with a different allowRepetitions.
+     * @throws IOException if the file cannot be mapped, or it does not have
+     *         an index.
+     */
+    public MappedSortedLongIndex(final Path file, final boolean allowRepetitions) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        regions = new ArrayList<>();
+        this.allowRepetitions = allowRepetitions;
+        firstElements = new long[16];
+        pages = new int[16];
+        pageCount = 0;
+        freePages = new int[16];
+        freePageCount = 0;
+        size = 0L;
+        modCount = 0L;
+
+        try {
+            if (channel.size() == 0L) {
+                create();
+            } else {
+                load();
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public MappedSortedLongIndex(final Path file) throws IOException {
+        this(file, false);
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public long first() {
+        if (pageCount == 0) {
+            throw new NoSuchElementException("The index is empty");
+        }
+        return firstElements[0];
+    }
+
+    public long last() {
+        if (pageCount == 0) {
+            throw new NoSuchElementException("The index is empty");
+        }
+        final int page = pages[pageCount - 1];
+        return getElement(page, getCount(page) - 1);
+    }
+
+    /**
+     * Inserts an element, after its repetitions if they are allowed.
+     */
+    public void insert(final long data) {
+        if (pageCount == 0) {
+            final int page = allocatePage();
+            setCount(page, 1);
+            setNextPage(page, 0);
+            setElement(page, 0, data);
+            insertInSummary(0, page, data);
+            getHeader().putInt(HEADER_FIRST_PAGE, page);
+            setSize(size + 1);
+            return;
+        }
+
+        int index = Math.max(0, lastPageBefore(data, true));
+        int page = pages[index];
+        int count = getCount(page);
+        int slot = findSlot(page, count, data, true);
+        if (!allowRepetitions && slot > 0 && getElement(page, slot - 1) == data) {
+            return;
+        }
+
+        if (count == PAGE_CAPACITY) {
+            // Appending at the end starts a new page, leaving this one full.
+            final boolean appending = slot == count && index == pageCount - 1;
+            final int kept = appending ? count : count / 2;
+            final int newPage = splitPage(index, kept);
+            if (slot > kept || appending) {
+                index++;
+                page = newPage;
+                slot -= kept;
+            }
+            count = getCount(page);
+        }
+
+        for (int i = count; i > slot; i--) {
+            setElement(page, i, getElement(page, i - 1));
+        }
+        setElement(page, slot, data);
+        setCount(page, count + 1);
+        if (slot == 0) {
+            firstElements[index] = data;
+        }
+        setSize(size + 1);
+    }
+
+    public boolean contains(final long data) {
+        return findFirst(data) != null;
+    }
+
+    public LongListNode find(final long data) {
+        return findFirst(data);
+    }
+
+    public LongListNode findFirst(final long data) {
+        if (pageCount == 0) {
+            return null;
+        }
+
+        int index = Math.max(0, lastPageBefore(data, false));
+        int slot = findSlot(pages[index], getCount(pages[index]), data, false);
+        if (slot == getCount(pages[index])) {
+            if (++index == pageCount) {
+                return null;
+            }
+            slot = 0;
+        }
+
+        return getElement(pages[index], slot) == data ? new Entry(index, slot) : null;
+    }
+
+    public LongListNode findLast(final long data) {
+        final int index = lastPageBefore(data, true);
+        if (index < 0) {
+            return null;
+        }
+
+        final int slot = findSlot(pages[index], getCount(pages[index]), data, true) - 1;
+        return getElement(pages[index], slot) == data ? new Entry(index, slot) : null;
+    }
+
+    public long popFirst() {
+        if (pageCount == 0) {
+            throw new NoSuchElementException("The index is empty");
+        }
+        final long result = firstElements[0];
+        removeAt(0, 0);
+        return result;
+    }
+
+    public long popLast() {
+        final long result = last();
+        removeAt(pageCount - 1, getCount(pages[pageCount - 1]) - 1);
+        return result;
+    }
+
+    /**
+     * Removes the first occurrence of an element.
+     */
+    public void remove(final long data) {
+        final Entry entry = (Entry) findFirst(data);
+        if (entry != null) {
+            removeAt(entry.index, entry.slot);
+        }
+    }
+
+    public PrimitiveIterator.OfLong iterator() {
+        return new PageIterator();
+    }
+
+    /**
+     * Forces the updates done through the mapping to be written to the disk.
+     */
+    public void flush() {
+        for (MappedByteBuffer region : regions) {
+            region.force();
+        }
+    }
+
+    /**
+     * Flushes and closes the file. The mapping itself is released when it is
+     * garbage collected, so the index must not be used anymore.
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    private void create() throws IOException {
+        mapRegion(0);
+        allocatedPages = 1;
+        final MappedByteBuffer header = getHeader();
+        header.putInt(HEADER_MAGIC, MAGIC);
+        header.putInt(HEADER_PAGE_SIZE, PAGE_SIZE);
+        header.putInt(HEADER_ALLOW_REPETITIONS, allowRepetitions ? 1 : 0);
+        header.putInt(HEADER_FIRST_PAGE, 0);
+        header.putInt(HEADER_ALLOCATED_PAGES, allocatedPages);
+        header.putLong(HEADER_SIZE, 0L);
+    }
+
+    /**
+     * Maps an existing file and rebuilds the summary by following the pages
+     * from the first one, the pages that are not reached being free.
+     */
+    private void load() throws IOException {
+        final long regionCount = (channel.size() + REGION_SIZE - 1) / REGION_SIZE;
+        for (int i = 0; i < regionCount; i++) {
+            mapRegion(i);
+        }
+
+        final MappedByteBuffer header = getHeader();
+        if (header.getInt(HEADER_MAGIC) != MAGIC || header.getInt(HEADER_PAGE_SIZE) != PAGE_SIZE) {
+            throw new IOException("The file does not have a sorted index");
+        } else if ((header.getInt(HEADER_ALLOW_REPETITIONS) != 0) != allowRepetitions) {
+            throw new IllegalArgumentException("The index was created with a different allowRepetitions");
+        }
+        allocatedPages = header.getInt(HEADER_ALLOCATED_PAGES);
+        if (allocatedPages < 1 || allocatedPages > regionCount * REGION_PAGES) {
+            throw new IOException("The file does not have a sorted index");
+        }
+
+        final boolean[] used = new boolean[allocatedPages];
+        long count = 0L;
+        for (int page = header.getInt(HEADER_FIRST_PAGE); page != 0; page = getNextPage(page)) {
+            if (page < 0 || page >= allocatedPages || used[page] || getCount(page) <= 0
+                    || getCount(page) > PAGE_CAPACITY) {
+                throw new IOException("The file has an invalid page");
+            }
+            used[page] = true;
+            insertInSummary(pageCount, page, getElement(page, 0));
+            count += getCount(page);
+        }
+        if (count != header.getLong(HEADER_SIZE)) {
+            throw new IOException("The file has an invalid size");
+        }
+        size = count;
+
+        for (int page = allocatedPages - 1; page > 0; page--) {
+            if (!used[page]) {
+                freePage(page);
+            }
+        }
+    }
+
+    private void mapRegion(final int region) throws IOException {
+        // Mapping beyond the end of the file extends it.
+        regions.add(channel.map(FileChannel.MapMode.READ_WRITE, region * REGION_SIZE, REGION_SIZE));
+    }
+
+    private MappedByteBuffer getHeader() {
+        return regions.get(0);
+    }
+
+    private MappedByteBuffer getRegion(final int page) {
+        return regions.get(page / REGION_PAGES);
+    }
+
+    private int getOffset(final int page) {
+        return (page % REGION_PAGES) * PAGE_SIZE;
+    }
+
+    private int getCount(final int page) {
+        return getRegion(page).getInt(getOffset(page));
+    }
+
+    private void setCount(final int page, final int count) {
+        getRegion(page).putInt(getOffset(page), count);
+    }
+
+    private int getNextPage(final int page) {
+        return getRegion(page).getInt(getOffset(page) + Integer.BYTES);
+    }
+
+    private void setNextPage(final int page, final int nextPage) {
+        getRegion(page).putInt(getOffset(page) + Integer.BYTES, nextPage);
+    }
+
+    private long getElement(final int page, final int slot) {
+        return getRegion(page).getLong(getOffset(page) + PAGE_HEADER_SIZE + slot * Long.BYTES);
+    }
+
+    private void setElement(final int page, final int slot, final long data) {
+        getRegion(page).putLong(getOffset(page) + PAGE_HEADER_SIZE + slot * Long.BYTES, data);
+    }
+
+    private void setSize(final long size) {
+        this.size = size;
+        getHeader().putLong(HEADER_SIZE, size);
+        modCount++;
+    }
+
+    private int allocatePage() {
+        if (freePageCount > 0) {
+            return freePages[--freePageCount];
+        }
+
+        if (allocatedPages == regions.size() * REGION_PAGES) {
+            try {
+                mapRegion(regions.size());
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot extend the file of the index", e);
+            }
+        }
+        getHeader().putInt(HEADER_ALLOCATED_PAGES, allocatedPages + 1);
+        return allocatedPages++;
+    }
+
+    private void freePage(final int page) {
+        if (freePageCount == freePages.length) {
+            freePages = Arrays.copyOf(freePages, 2 * freePages.length);
+        }
+        freePages[freePageCount++] = page;
+    }
+
+    private void insertInSummary(final int index, final int page, final long firstElement) {
+        if (pageCount == pages.length) {
+            firstElements = Arrays.copyOf(firstElements, 2 * pageCount);
+            pages = Arrays.copyOf(pages, 2 * pageCount);
+        }
+        System.arraycopy(firstElements, index, firstElements, index + 1, pageCount - index);
+        System.arraycopy(pages, index, pages, index + 1, pageCount - index);
+        firstElements[index] = firstElement;
+        pages[index] = page;
+        pageCount++;
+    }
+
+    private void removeFromSummary(final int index) {
+        System.arraycopy(firstElements, index + 1, firstElements, index, pageCount - index - 1);
+        System.arraycopy(pages, index + 1, pages, index, pageCount - index - 1);
+        pageCount--;
+    }
+
+    /**
+     * Gets the position in the summary of the last page whose first element
+     * is less than (or equal to if inclusive) the given one, or -1 if there
+     * is none.
+     */
+    private int lastPageBefore(final long data, final boolean inclusive) {
+        int low = 0;
+        int high = pageCount;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (firstElements[middle] < data || (inclusive && firstElements[middle] == data)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low - 1;
+    }
+
+    /**
+     * Gets the first slot of a page whose element is greater than (or equal
+     * to if not inclusive) the given one, or the count if there is none.
+     */
+    private int findSlot(final int page, final int count, final long data, final boolean inclusive) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            final long element = getElement(page, middle);
+            if (element < data || (inclusive && element == data)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Moves the elements of a page after the first kept ones to a new page
+     * placed after it.
+     *
+     * @return the new page.
+     */
+    private int splitPage(final int index, final int kept) {
+        final int page = pages[index];
+        final int count = getCount(page);
+        final int newPage = allocatePage();
+
+        for (int i = kept; i < count; i++) {
+            setElement(newPage, i - kept, getElement(page, i));
+        }
+        setCount(newPage, count - kept);
+        setCount(page, kept);
+        setNextPage(newPage, getNextPage(page));
+        setNextPage(page, newPage);
+        insertInSummary(index + 1, newPage, kept < count ? getElement(newPage, 0) : 0L);
+
+        return newPage;
+    }
+
+    private void removeAt(final int index, final int slot) {
+        final int page = pages[index];
+        final int count = getCount(page);
+
+        for (int i = slot + 1; i < count; i++) {
+            setElement(page, i - 1, getElement(page, i));
+        }
+        setCount(page, count - 1);
+
+        if (count == 1) {
+            if (index > 0) {
+                setNextPage(pages[index - 1], getNextPage(page));
+            } else {
+                getHeader().putInt(HEADER_FIRST_PAGE, getNextPage(page));
+            }
+            removeFromSummary(index);
+            freePage(page);
+        } else if (slot == 0) {
+            firstElements[index] = getElement(page, 0);
+        }
+        setSize(size - 1);
+    }
+
+    private void checkForComodification(final long expectedModCount) {
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+
+    private class Entry implements LongListNode {
+        final int index;
+        final int slot;
+        final long expectedModCount;
+
+        Entry(final int index, final int slot) {
+            this.index = index;
+            this.slot = slot;
+            expectedModCount = modCount;
+        }
+
+        @Override
+        public LongListNode getPrev() {
+            checkForComodification(expectedModCount);
+            if (slot > 0) {
+                return new Entry(index, slot - 1);
+            }
+            return index > 0 ? new Entry(index - 1, getCount(pages[index - 1]) - 1) : null;
+        }
+
+        @Override
+        public LongListNode getNext() {
+            checkForComodification(expectedModCount);
+            if (slot + 1 < getCount(pages[index])) {
+                return new Entry(index, slot + 1);
+            }
+            return index + 1 < pageCount ? new Entry(index + 1, 0) : null;
+        }
+
+        @Override
+        public long getData() {
+            checkForComodification(expectedModCount);
+            return getElement(pages[index], slot);
+        }
+    }
+
+    private class PageIterator implements PrimitiveIterator.OfLong {
+        private final long expectedModCount;
+        private int index;
+        private int page;
+        private int slot;
+        private int count;
+
+        PageIterator() {
+            expectedModCount = modCount;
+            index = 0;
+            page = pageCount > 0 ? pages[0] : 0;
+            slot = 0;
+            count = pageCount > 0 ? getCount(page) : 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return slot < count;
+        }
+
+        @Override
+        public long nextLong() {
+            checkForComodification(expectedModCount);
+            if (slot == count) {
+                throw new NoSuchElementException();
+            }
+
+            final long data = getElement(page, slot++);
+            if (slot == count && ++index < pageCount) {
+                page = pages[index];
+                slot = 0;
+                count = getCount(page);
+            }
+            return data;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package datastructures;
+
+/**
+ * The counters kept by a SortedTreeList whose stats are enabled. They are
+ * plain fields updated by the thread using the list, so they may be read a
+ * bit stale from another thread (e.g. through JMX).
+ *
+ * @author Egar Garcia
+ */
+final class OperationMetrics {
+
+    /**
+     * False when the system property datastructures.metrics.disabled is set.
+     * Being a constant, the JIT then removes the code recording metrics
+     * altogether, instead of checking per list whether they are enabled.
+     */
+    static final boolean SUPPORTED = !Boolean.getBoolean("datastructures.metrics.disabled");
+
+    static final int INSERT = 0;
+    static final int FIND = 1;
+    static final int REMOVE = 2;
+
+    long comparisons;
+    long rotations;
+    long rebalancingSteps;
+    long searches;
+    long nodesVisited;
+    final LatencyHistogram[] latencies;
+
+    OperationMetrics() {
+        latencies = new LatencyHistogram[] {new LatencyHistogram(), new LatencyHistogram(), new LatencyHistogram()};
+    }
+}
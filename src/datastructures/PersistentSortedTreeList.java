@@ -0,0 +1,368 @@
+package datastructures;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * A sorted list whose AVL tree is persistent: the nodes are immutable and
+ * every update copies only the path from the root to the changed node,
+ * sharing the rest with the previous versions. So taking a snapshot is O(1)
+ * and gives a point-in-time view that is never changed by later updates.
+ *
+ * Updates are serialized among themselves, but readers (of the list or of a
+ * snapshot) never lock nor block writers. Since a node cannot be linked to
+ * its neighbours without being copied along with them, there is no linked
+ * list: the elements are iterated with a stack of ancestors instead.
+ *
+ * @author Egar Garcia
+ *
+ * @param <T>
+ */
+public class PersistentSortedTreeList<T extends Comparable<T>> implements Iterable<T> {
+
+    private volatile Snapshot current;
+    private final boolean allowRepetitions;
+
+    public PersistentSortedTreeList(final boolean allowRepetitions) {
+        current = new Snapshot(null);
+        this.allowRepetitions = allowRepetitions;
+    }
+
+    public PersistentSortedTreeList() {
+        this(false);
+    }
+
+    /**
+     * Gets an immutable view of the list as it is now, in O(1).
+     */
+    public Snapshot snapshot() {
+        return current;
+    }
+
+    public long size() {
+        return current.size();
+    }
+
+    public T first() {
+        return current.first();
+    }
+
+    public T last() {
+        return current.last();
+    }
+
+    public boolean contains(final T data) {
+        return current.contains(data);
+    }
+
+    public T find(final T data) {
+        return current.find(data);
+    }
+
+    public T get(final long index) {
+        return current.get(index);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return current.iterator();
+    }
+
+    public Iterable<T> range(final T from, final boolean fromInclusive, final T to, final boolean toInclusive) {
+        return current.range(from, fromInclusive, to, toInclusive);
+    }
+
+    public synchronized void insert(final T data) {
+        final Node<T> root = current.root;
+        final Node<T> newRoot = insert(root, data);
+        if (newRoot != root) {
+            current = new Snapshot(newRoot);
+        }
+    }
+
+    public synchronized void remove(final T data) {
+        final Node<T> root = current.root;
+        final Node<T> newRoot = remove(root, data);
+        if (newRoot != root) {
+            current = new Snapshot(newRoot);
+        }
+    }
+
+    public synchronized T popFirst() {
+        final Node<T> root = current.root;
+        if (root == null) {
+            return null;
+        }
+        final T first = getMin(root).data;
+        current = new Snapshot(removeMin(root));
+        return first;
+    }
+
+    public synchronized T popLast() {
+        final Node<T> root = current.root;
+        if (root == null) {
+            return null;
+        }
+        final T last = getMax(root).data;
+        current = new Snapshot(removeMax(root));
+        return last;
+    }
+
+    private static <T> int getHeight(final Node<T> n) {
+        return n != null ? n.height : -1;
+    }
+
+    private static <T> long getSize(final Node<T> n) {
+        return n != null ? n.size : 0L;
+    }
+
+    private static <T> Node<T> getMin(final Node<T> n) {
+        Node<T> current = n;
+        while (current.left != null) {
+            current = current.left;
+        }
+        return current;
+    }
+
+    private static <T> Node<T> getMax(final Node<T> n) {
+        Node<T> current = n;
+        while (current.right != null) {
+            current = current.right;
+        }
+        return current;
+    }
+
+    /**
+     * Creates the node for the given element and subtrees, rotating if their
+     * heights differ by two.
+     */
+    private static <T> Node<T> balance(final T data, final Node<T> left, final Node<T> right) {
+        final int leftHeight = getHeight(left);
+        final int rightHeight = getHeight(right);
+
+        if (leftHeight > rightHeight + 1) {
+            if (getHeight(left.left) >= getHeight(left.right)) {
+                return new Node<>(left.data, left.left, new Node<>(data, left.right, right));
+            }
+            return new Node<>(left.right.data,
+                    new Node<>(left.data, left.left, left.right.left),
+                    new Node<>(data, left.right.right, right));
+        } else if (rightHeight > leftHeight + 1) {
+            if (getHeight(right.right) >= getHeight(right.left)) {
+                return new Node<>(right.data, new Node<>(data, left, right.left), right.right);
+            }
+            return new Node<>(right.left.data,
+                    new Node<>(data, left, right.left.left),
+                    new Node<>(right.data, right.left.right, right.right));
+        }
+        return new Node<>(data, left, right);
+    }
+
+    /**
+     * @return the root of the new version, or the same root if the element
+     *         was not inserted because it was repeated.
+     */
+    private Node<T> insert(final Node<T> n, final T data) {
+        if (n == null) {
+            return new Node<>(data, null, null);
+        }
+
+        int comparison = data.compareTo(n.data);
+        if (comparison == 0 && !allowRepetitions) {
+            return n;
+        } else if (comparison <= 0) {
+            final Node<T> left = insert(n.left, data);
+            return left != n.left ? balance(n.data, left, n.right) : n;
+        } else {
+            final Node<T> right = insert(n.right, data);
+            return right != n.right ? balance(n.data, n.left, right) : n;
+        }
+    }
+
+    /**
+     * @return the root of the new version, or the same root if the element
+     *         was not contained.
+     */
+    private Node<T> remove(final Node<T> n, final T data) {
+        if (n == null) {
+            return null;
+        }
+
+        int comparison = data.compareTo(n.data);
+        if (comparison < 0) {
+            final Node<T> left = remove(n.left, data);
+            return left != n.left ? balance(n.data, left, n.right) : n;
+        } else if (comparison > 0) {
+            final Node<T> right = remove(n.right, data);
+            return right != n.right ? balance(n.data, n.left, right) : n;
+        } else if (n.left == null) {
+            return n.right;
+        } else if (n.right == null) {
+            return n.left;
+        }
+        return balance(getMin(n.right).data, n.left, removeMin(n.right));
+    }
+
+    private Node<T> removeMin(final Node<T> n) {
+        if (n.left == null) {
+            return n.right;
+        }
+        return balance(n.data, removeMin(n.left), n.right);
+    }
+
+    private Node<T> removeMax(final Node<T> n) {
+        if (n.right == null) {
+            return n.left;
+        }
+        return balance(n.data, n.left, removeMax(n.right));
+    }
+
+
+    private static final class Node<T> {
+        final T data;
+        final Node<T> left, right;
+        final int height;
+        final long size;
+
+        Node(final T data, final Node<T> left, final Node<T> right) {
+            this.data = data;
+            this.left = left;
+            this.right = right;
+            height = 1 + Math.max(getHeight(left), getHeight(right));
+            size = 1 + getSize(left) + getSize(right);
+        }
+    }
+
+    /**
+     * An immutable version of the list.
+     */
+    public class Snapshot implements Iterable<T> {
+        private final Node<T> root;
+
+        Snapshot(final Node<T> root) {
+            this.root = root;
+        }
+
+        public long size() {
+            return getSize(root);
+        }
+
+        public T first() {
+            return root != null ? getMin(root).data : null;
+        }
+
+        public T last() {
+            return root != null ? getMax(root).data : null;
+        }
+
+        public boolean contains(final T data) {
+            return find(data) != null;
+        }
+
+        /**
+         * Gets the element of the snapshot equal to the given one, or null if
+         * it is not contained.
+         */
+        public T find(final T data) {
+            Node<T> current = root;
+
+            while (current != null) {
+                int comparison = data.compareTo(current.data);
+                if (comparison < 0) {
+                    current = current.left;
+                } else if (comparison > 0) {
+                    current = current.right;
+                } else {
+                    return current.data;
+                }
+            }
+
+            return null;
+        }
+
+        /**
+         * Gets the element at the given position in the sorted order
+         * (starting at 0), or null if the position is out of range.
+         */
+        public T get(final long index) {
+            long remaining = index;
+            Node<T> current = root;
+
+            while (current != null) {
+                final long leftSize = getSize(current.left);
+                if (remaining < leftSize) {
+                    current = current.left;
+                } else if (remaining > leftSize) {
+                    remaining -= leftSize + 1;
+                    current = current.right;
+                } else {
+                    return current.data;
+                }
+            }
+
+            return null;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return new SnapshotIterator(root, null, true, null, true);
+        }
+
+        /**
+         * Gets the elements between from and to, a null bound meaning that
+         * the range is unbounded on that side.
+         */
+        public Iterable<T> range(final T from, final boolean fromInclusive, final T to, final boolean toInclusive) {
+            return () -> new SnapshotIterator(root, from, fromInclusive, to, toInclusive);
+        }
+    }
+
+    private class SnapshotIterator implements Iterator<T> {
+        private final Deque<Node<T>> ancestors;
+        private final T to;
+        private final boolean toInclusive;
+
+        SnapshotIterator(final Node<T> root, final T from, final boolean fromInclusive,
+                final T to, final boolean toInclusive) {
+            this.to = to;
+            this.toInclusive = toInclusive;
+            ancestors = new ArrayDeque<>();
+
+            // Keeps the path to the first element in the range, without the
+            // ancestors that are before it.
+            Node<T> current = root;
+            while (current != null) {
+                int comparison = from != null ? current.data.compareTo(from) : 1;
+                if (comparison > 0 || (fromInclusive && comparison == 0)) {
+                    ancestors.push(current);
+                    current = current.left;
+                } else {
+                    current = current.right;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (ancestors.isEmpty() || to == null) {
+                return !ancestors.isEmpty();
+            }
+            int comparison = ancestors.peek().data.compareTo(to);
+            return comparison < 0 || (toInclusive && comparison == 0);
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                return null;
+            }
+
+            final Node<T> n = ancestors.pop();
+            for (Node<T> current = n.right; current != null; current = current.left) {
+                ancestors.push(current);
+            }
+            return n.data;
+        }
+    }
+}
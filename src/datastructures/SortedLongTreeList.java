@@ -0,0 +1,570 @@
+package datastructures;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * A SortedTreeList specialized for long elements, which are stored inline
+ * in the nodes and compared arithmetically, so neither inserting nor
+ * searching boxes them.
+ *
+ * Since there is no null to return, getting the first or last element of
+ * an empty list throws a NoSuchElementException.
+ *
+ * @author Egar Garcia
+ */
+public class SortedLongTreeList {
+
+    private Node root, head, tail;
+    private long size;
+    private boolean allowRepetitions;
+
+    public SortedLongTreeList(final boolean allowRepetitions) {
+        root = head = tail = null;
+        size = 0L;
+        this.allowRepetitions = allowRepetitions;
+    }
+
+    public SortedLongTreeList() {
+        this(false);
+    }
+
+    public LongTreeNode getRoot() {
+        return root;
+    }
+
+    public LongListNode getHead() {
+        return head;
+    }
+
+    public LongListNode getTail() {
+        return tail;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public long first() {
+        if (head == null) {
+            throw new NoSuchElementException("The list is empty");
+        }
+        return head.data;
+    }
+
+    public long last() {
+        if (tail == null) {
+            throw new NoSuchElementException("The list is empty");
+        }
+        return tail.data;
+    }
+
+    public void insert(final long data) {
+        doInsert(data);
+    }
+
+    public boolean contains(final long data) {
+        return doFind(data) != null;
+    }
+
+    public LongListNode find(final long data) {
+        return doFind(data);
+    }
+
+    public LongListNode findFirst(final long data) {
+        return findFirstFirstOrLast(data, true);
+    }
+
+    public LongListNode findLast(final long data) {
+        return findFirstFirstOrLast(data, false);
+    }
+
+    public long popFirst() {
+        if (head == null) {
+            throw new NoSuchElementException("The list is empty");
+        }
+        final long result = head.data;
+        removeNode(head);
+        return result;
+    }
+
+    public long popLast() {
+        if (tail == null) {
+            throw new NoSuchElementException("The list is empty");
+        }
+        final long result = tail.data;
+        removeNode(tail);
+        return result;
+    }
+
+    public void remove(final long data) {
+        final Node current = doFind(data);
+        if (current != null) {
+            removeNode(current);
+        }
+    }
+
+    public PrimitiveIterator.OfLong iterator() {
+        return new TreeListIterator(head, true);
+    }
+
+    public PrimitiveIterator.OfLong descendingIterator() {
+        return new TreeListIterator(tail, false);
+    }
+
+    /**
+     * Gets the element at the given position in the sorted order (starting
+     * at 0).
+     *
+     * @throws IndexOutOfBoundsException if the position is out of range.
+     */
+    public long get(final long index) {
+        long remaining = index;
+        Node current = root;
+
+        while (current != null) {
+            final long leftSize = getSubtreeSize(current.left);
+            if (remaining < leftSize) {
+                current = current.left;
+            } else if (remaining > leftSize) {
+                remaining -= leftSize + 1;
+                current = current.right;
+            } else {
+                return current.data;
+            }
+        }
+
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+
+    /**
+     * Gets the number of elements that are strictly less than the given one,
+     * i.e. the position that it has or would have in the sorted order.
+     */
+    public long rank(final long data) {
+        long count = 0L;
+        Node current = root;
+
+        while (current != null) {
+            if (data <= current.data) {
+                current = current.left;
+            } else {
+                count += getSubtreeSize(current.left) + 1;
+                current = current.right;
+            }
+        }
+
+        return count;
+    }
+
+    private void insertBeforeInList(final Node target, final Node n) {
+        n.prev = target.prev;
+        n.next = target;
+
+        if (target.prev != null) {
+            target.prev.next = n;
+        } else {
+            head = n;
+        }
+        target.prev = n;
+    }
+
+    private void insertAfterInList(final Node target, final Node n) {
+        n.prev = target;
+        n.next = target.next;
+
+        if (target.next != null) {
+            target.next.prev = n;
+        } else {
+            tail = n;
+        }
+        target.next = n;
+    }
+
+    private Node insertLeftInTree(final Node target, final long data) {
+        target.left = new Node(data, target);
+        insertBeforeInList(target, target.left);
+        size++;
+        return target.left;
+    }
+
+    private Node insertRightInTree(final Node target, final long data) {
+        target.right = new Node(data, target);
+        insertAfterInList(target, target.right);
+        size++;
+        return target.right;
+    }
+
+    private long getBalanceFactor(final Node n) {
+        return (n.left != null ? n.left.height : -1L) - (n.right != null ? n.right.height : -1);
+    }
+
+    private long getSubtreeSize(final Node n) {
+        return n != null ? n.subtreeSize : 0L;
+    }
+
+    private void update(final Node n) {
+        n.height = 1 + Math.max(n.left != null ? n.left.height : -1L, n.right != null ? n.right.height : -1);
+        n.subtreeSize = 1 + getSubtreeSize(n.left) + getSubtreeSize(n.right);
+    }
+
+    private void swapChild(final Node parent, final Node currentChild, final Node newChild) {
+        if (parent != null) {
+            if (parent.left == currentChild) {
+                parent.left = newChild;
+            } else {
+                parent.right = newChild;
+            }
+        } else {
+            root = newChild;
+        }
+    }
+
+    private Node rotateLeft(final Node n) {
+        final Node newRoot = n.right;
+        n.right = newRoot.left;
+        newRoot.left = n;
+
+        swapChild(n.parent, n, newRoot);
+        newRoot.parent = n.parent;
+        n.parent = newRoot;
+        if (n.right != null) {
+            n.right.parent = n;
+        }
+
+        update(n);
+        update(newRoot);
+
+        return newRoot;
+    }
+
+    private Node rotateRight(final Node n) {
+        final Node newRoot = n.left;
+        n.left = newRoot.right;
+        newRoot.right = n;
+
+        swapChild(n.parent, n, newRoot);
+        newRoot.parent = n.parent;
+        n.parent = newRoot;
+        if (n.left != null) {
+            n.left.parent = n;
+        }
+
+        update(n);
+        update(newRoot);
+
+        return newRoot;
+    }
+
+    private Node balance(final Node n) {
+        long balanceFactor = getBalanceFactor(n);
+
+        if (balanceFactor >= 2) {
+            if (getBalanceFactor(n.left) <= -1) {
+                rotateLeft(n.left);
+                update(n);
+            }
+            return rotateRight(n);
+        } else if (balanceFactor <= -2) {
+            if (getBalanceFactor(n.right) >= 1) {
+                rotateRight(n.right);
+                update(n);
+            }
+            return rotateLeft(n);
+        }
+        return n;
+    }
+
+    private void andjustAndBalanceUpToRoot(final Node n) {
+        Node current = n;
+
+        while (current != null) {
+            update(current);
+            current = balance(current);
+            current = current.parent;
+        }
+    }
+
+    private Node doInsert(final long data) {
+        if (root == null) {
+            root = head = tail = new Node(data, null);
+            size++;
+            return root;
+        }
+
+        // Fast path for keys arriving in ascending order: the tail is the
+        // rightmost node, so it has no right child. An element equal to the
+        // tail goes through the descent, which places it before its equals.
+        if (data > tail.data) {
+            final Node newNode = insertRightInTree(tail, data);
+            andjustAndBalanceUpToRoot(newNode.parent);
+            return newNode;
+        } else if (data == tail.data && !allowRepetitions) {
+            return null;
+        }
+
+        Node current = null;
+        Node target = root;
+        Node newNode = null;
+
+        while (target != null) {
+            current = target;
+
+            if (data < current.data || (data == current.data && allowRepetitions)) {
+                target = current.left;
+                if (current.left == null) {
+                    newNode = insertLeftInTree(current, data);
+                }
+            } else if (data > current.data) {
+                target = current.right;
+                if (current.right == null) {
+                    newNode = insertRightInTree(current, data);
+                }
+            } else {
+                return null;
+            }
+        }
+
+        andjustAndBalanceUpToRoot(current);
+
+        return newNode;
+    }
+
+    private Node doFind(final long data) {
+        Node current = root;
+
+        while (current != null) {
+            if (data < current.data) {
+                current = current.left;
+            } else if (data > current.data) {
+                current = current.right;
+            } else {
+                return current;
+            }
+        }
+
+        return null;
+    }
+
+    private Node findClosest(final long data, final boolean before) {
+        Node current = null;
+        Node target = root;
+
+        while (target != null) {
+            current = target;
+
+            if (data < current.data || (before && data == current.data)) {
+                target = current.left;
+            } else {
+                target = current.right;
+            }
+        }
+
+        return current;
+    }
+
+    private LongListNode findFirstFirstOrLast(final long data, final boolean first) {
+        Node closests = findClosest(data, first);
+        if (closests != null) {
+            if (closests.data == data) {
+                return closests;
+            } else if (first && closests.next != null && closests.next.data == data) {
+                return closests.next;
+            } else if (!first && closests.prev != null && closests.prev.data == data) {
+                return closests.prev;
+            }
+        }
+        return null;
+    }
+
+    private void swapNodesTreePointers(final Node n1, final Node n2) {
+        Node tmp = n1.parent;
+        n1.parent = n2.parent;
+        n2.parent = tmp;
+
+        tmp = n1.left;
+        n1.left = n2.left;
+        n2.left = tmp;
+
+        tmp = n1.right;
+        n1.right = n2.right;
+        n2.right = tmp;
+    }
+
+    private void swapNodesTreePointersParentChild(final Node parent, final Node child) {
+        child.parent = parent.parent;
+        parent.parent = child;
+
+        if (parent.left == child) {
+            parent.left = child.left;
+            child.left = parent;
+            Node tmp = child.right;
+            child.right = parent.right;
+            parent.right = tmp;
+        } else {
+            parent.right = child.right;
+            child.right = parent;
+            Node tmp = child.left;
+            child.left = parent.left;
+            parent.left = tmp;
+        }
+    }
+
+    private void swapNodesInTree(final Node n1, final Node n2) {
+        if (n2.parent == n1) {
+            swapChild(n1.parent, n1, n2);
+            if (n2.left != null) {
+                n2.left.parent = n1;
+            }
+            if (n2.right != null) {
+                n2.right.parent = n1;
+            }
+            if (n1.left == n2) {
+                if (n1.right != null) {
+                    n1.right.parent = n2;
+                }
+            } else {
+                if (n1.left != null) {
+                    n1.left.parent = n2;
+                }
+            }
+            swapNodesTreePointersParentChild(n1, n2);
+        } else if (n1.parent == n2) {
+            swapNodesInTree(n2, n1);
+        } else {
+            swapChild(n1.parent, n1, n2);
+            swapChild(n2.parent, n2, n1);
+            if (n1.left != null) {
+                n1.left.parent = n2;
+            }
+            if (n1.right != null) {
+                n1.right.parent = n2;
+            }
+            if (n2.left != null) {
+                n2.left.parent = n1;
+            }
+            if (n2.right != null) {
+                n2.right.parent = n1;
+            }
+            swapNodesTreePointers(n1, n2);
+        }
+    }
+
+    private void removeNodeInList(final Node n) {
+        if (n.prev == null) {
+            head = n.next;
+        } else {
+            n.prev.next = n.next;
+        }
+
+        if (n.next == null) {
+            tail = n.prev;
+        } else {
+            n.next.prev = n.prev;
+        }
+
+        n.prev = n.next = null;
+    }
+
+    private void removeNodeInTree(final Node n) {
+        if (n.left == null || n.right == null) {
+
+            final Node parent = n.parent;
+            if (n.left != null)  {
+                n.left.parent = parent;
+                swapChild(parent, n, n.left);
+            } else if (n.right != null) {
+                n.right.parent = parent;
+                swapChild(parent, n, n.right);
+            } else {
+                swapChild(parent, n, null);
+            }
+
+            n.left = n.right = n.parent = null;
+            n.height = 0;
+            n.subtreeSize = 1L;
+            andjustAndBalanceUpToRoot(parent);
+
+        } else {
+            swapNodesInTree(n, n.next);
+            removeNodeInTree(n);
+        }
+    }
+
+    private void removeNode(final Node n) {
+        removeNodeInTree(n);
+        removeNodeInList(n);
+        size--;
+    }
+
+
+    private static class Node implements LongTreeNode, LongListNode {
+        final long data;
+        Node left, right, parent, prev, next;
+        long height;
+        long subtreeSize;
+
+        public Node(final long data, final Node parent) {
+            this.data = data;
+            this.parent = parent;
+            left = right = prev = next = null;
+            height = 0L;
+            subtreeSize = 1L;
+        }
+
+        @Override
+        public LongListNode getPrev() {
+            return prev;
+        }
+
+        @Override
+        public LongListNode getNext() {
+            return next;
+        }
+
+        @Override
+        public LongTreeNode getLeft() {
+            return left;
+        }
+
+        @Override
+        public LongTreeNode getRight() {
+            return right;
+        }
+
+        @Override
+        public LongTreeNode getParent() {
+            return parent;
+        }
+
+        @Override
+        public long getData() {
+            return data;
+        }
+    }
+
+    private static class TreeListIterator implements PrimitiveIterator.OfLong {
+        private Node current;
+        private final boolean ascending;
+
+        TreeListIterator(final Node current, final boolean ascending) {
+            this.current = current;
+            this.ascending = ascending;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return current != null;
+        }
+
+        @Override
+        public long nextLong() {
+            if (current == null) {
+                throw new NoSuchElementException();
+            }
+            final long data = current.data;
+            current = ascending ? current.next : current.prev;
+            return data;
+        }
+    }
+}
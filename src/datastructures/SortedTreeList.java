@@ -1,6 +1,34 @@
 package datastructures;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
 import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.LongBinaryOperator;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
 
 /**
  * A data structure that combines an AVL Binary Search Tree and
@@ -10,20 +38,318 @@ import java.util.Iterator;
  *
  * @param <T>
  */
-public class SortedTreeList<T extends Comparable<T>> {
+public class SortedTreeList<T> implements Iterable<T> {
+
+    private static final int SERIALIZATION_MAGIC = 0x53544c31;
+    private static final int SERIALIZATION_HEADER_SIZE = 22;
+    private static final int ORDER_BY_COMPARATOR = 4;
+    private static final int ORDER_BY_KEY = 8;
+    private static final int ORDER_BY_INTERVAL = 16;
+    private static final int BLOCK_HEADER_SIZE = 2 * Integer.BYTES;
 
     private Node root, head, tail;
     private long size;
     private boolean allowRepetitions;
+    private boolean countRepetitions;
+    private BalancingPolicy balancingPolicy;
+    private final Comparator<? super T> comparator;
+    private final ToLongFunction<? super T> keyExtractor;
+    private final ToLongFunction<? super T> endExtractor;
+    private long capacity;
+    private EvictionSide evictionSide;
+    private long aggregationIdentity;
+    private ToLongFunction<? super T> aggregationLift;
+    private LongBinaryOperator aggregationCombiner;
+    private long modCount;
+    private OperationMetrics metrics;
+
+    /**
+     * Creates a list, which when counting repetitions keeps a single node per
+     * distinct element together with its number of occurrences, instead of
+     * a node for each one of them.
+     *
+     * @throws IllegalArgumentException if counting repetitions that are not
+     *         allowed.
+     */
+    public SortedTreeList(final boolean allowRepetitions, final boolean countRepetitions,
+            final BalancingPolicy balancingPolicy) {
+        this(allowRepetitions, countRepetitions, balancingPolicy, null, null, null);
+    }
+
+    public SortedTreeList(final boolean allowRepetitions, final boolean countRepetitions) {
+        this(allowRepetitions, countRepetitions, BalancingPolicy.AVL);
+    }
 
     public SortedTreeList(final boolean allowRepetitions) {
+        this(allowRepetitions, false);
+    }
+
+    public SortedTreeList() {
+        this(false);
+    }
+
+    /**
+     * Creates a list sorted by a comparator instead of the natural order of
+     * the elements (which then do not need to be Comparable).
+     */
+    public SortedTreeList(final Comparator<? super T> comparator, final boolean allowRepetitions,
+            final boolean countRepetitions, final BalancingPolicy balancingPolicy) {
+        this(allowRepetitions, countRepetitions, balancingPolicy, comparator, null, null);
+    }
+
+    public SortedTreeList(final Comparator<? super T> comparator, final boolean allowRepetitions) {
+        this(comparator, allowRepetitions, false, BalancingPolicy.AVL);
+    }
+
+    /**
+     * Creates a list sorted by a long key extracted from the elements. The
+     * key of every element is extracted once and kept in its node, so the
+     * searches compare primitive keys instead of calling compareTo (and
+     * elements with the same key are repetitions).
+     */
+    public SortedTreeList(final ToLongFunction<? super T> keyExtractor, final boolean allowRepetitions,
+            final boolean countRepetitions, final BalancingPolicy balancingPolicy) {
+        this(allowRepetitions, countRepetitions, balancingPolicy, null, keyExtractor, null);
+    }
+
+    public SortedTreeList(final ToLongFunction<? super T> keyExtractor, final boolean allowRepetitions) {
+        this(keyExtractor, allowRepetitions, false, BalancingPolicy.AVL);
+    }
+
+    /**
+     * Creates a list of intervals, the closed ranges [start, end] given by
+     * the extractors, sorted by their start. Every node also keeps the
+     * maximum end within its subtree, so the intervals overlapping a range
+     * can be found without going through the ones that cannot.
+     */
+    public SortedTreeList(final ToLongFunction<? super T> startExtractor, final ToLongFunction<? super T> endExtractor,
+            final boolean allowRepetitions, final BalancingPolicy balancingPolicy) {
+        this(allowRepetitions, false, balancingPolicy, null, startExtractor, endExtractor);
+    }
+
+    public SortedTreeList(final ToLongFunction<? super T> startExtractor, final ToLongFunction<? super T> endExtractor,
+            final boolean allowRepetitions) {
+        this(startExtractor, endExtractor, allowRepetitions, BalancingPolicy.AVL);
+    }
+
+    private SortedTreeList(final boolean allowRepetitions, final boolean countRepetitions,
+            final BalancingPolicy balancingPolicy, final Comparator<? super T> comparator,
+            final ToLongFunction<? super T> keyExtractor, final ToLongFunction<? super T> endExtractor) {
+        if (countRepetitions && !allowRepetitions) {
+            throw new IllegalArgumentException("Cannot count repetitions that are not allowed");
+        }
+
         root = head = tail = null;
         size = 0L;
         this.allowRepetitions = allowRepetitions;
+        this.countRepetitions = countRepetitions;
+        this.balancingPolicy = balancingPolicy;
+        this.comparator = comparator;
+        this.keyExtractor = keyExtractor;
+        this.endExtractor = endExtractor;
+        capacity = Long.MAX_VALUE;
+        evictionSide = EvictionSide.LAST;
     }
 
-    public SortedTreeList() {
-        this(false);
+    public static <T extends Comparable<T>> SortedTreeList<T> fromSorted(final Iterator<T> iterator, final long size) {
+        return fromSorted(iterator, size, false, true);
+    }
+
+    /**
+     * Creates a list from the first size elements given by an iterator in
+     * sorted order, building the balanced tree and the linked list together
+     * in O(n). When checkOrder is false no comparisons are made at all,
+     * and it is up to the caller to provide sorted (and when repetitions
+     * are not allowed, unique) elements.
+     *
+     * @throws IllegalArgumentException if the size is negative, the iterator
+     *         has fewer than size elements, or when checking the order, they
+     *         are not sorted.
+     */
+    public static <T extends Comparable<T>> SortedTreeList<T> fromSorted(final Iterator<T> iterator, final long size,
+            final boolean allowRepetitions, final boolean checkOrder) {
+        return fromSorted(new SortedTreeList<>(allowRepetitions), iterator, size, checkOrder);
+    }
+
+    /**
+     * Creates a list sorted by a comparator from elements given in that
+     * order, like fromSorted does for the natural order.
+     */
+    public static <T> SortedTreeList<T> fromSorted(final Iterator<T> iterator, final long size,
+            final Comparator<? super T> comparator, final boolean allowRepetitions, final boolean checkOrder) {
+        return fromSorted(new SortedTreeList<>(comparator, allowRepetitions), iterator, size, checkOrder);
+    }
+
+    /**
+     * Creates a list sorted by a long key from elements given in the order of
+     * their keys, like fromSorted does for the natural order.
+     */
+    public static <T> SortedTreeList<T> fromSorted(final Iterator<T> iterator, final long size,
+            final ToLongFunction<? super T> keyExtractor, final boolean allowRepetitions, final boolean checkOrder) {
+        return fromSorted(new SortedTreeList<>(keyExtractor, allowRepetitions), iterator, size, checkOrder);
+    }
+
+    private static <T> SortedTreeList<T> fromSorted(final SortedTreeList<T> sortedTreeList,
+            final Iterator<T> iterator, final long size, final boolean checkOrder) {
+        if (size < 0L) {
+            throw new IllegalArgumentException("Illegal size: " + size);
+        }
+
+        sortedTreeList.rebuild(sortedTreeList.new NewNodeIterator(iterator, checkOrder), size);
+        return sortedTreeList;
+    }
+
+    /**
+     * Writes the list to a (blocking) channel: a header followed by the
+     * elements in sorted order, in length-prefixed blocks that are encoded
+     * into pooled direct buffers. In counted mode every element is followed
+     * by its number of occurrences. The header records whether the list is
+     * sorted by the natural order, a comparator, a key or intervals, so that
+     * it is only read back by the readFrom for the same kind of order.
+     *
+     * @throws IllegalArgumentException if an element does not fit in a block.
+     */
+    public void writeTo(final WritableByteChannel channel, final Encoder<T> encoder) throws IOException {
+        long nodeCount = 0L;
+        for (Node n = head; n != null; n = n.next) {
+            nodeCount++;
+        }
+
+        final ByteBuffer buffer = ByteBufferPool.SHARED.acquire();
+        try {
+            buffer.putInt(SERIALIZATION_MAGIC);
+            buffer.put((byte) ((allowRepetitions ? 1 : 0) | (countRepetitions ? 2 : 0) | getOrderFlag(
+                    comparator, keyExtractor, endExtractor)));
+            buffer.put((byte) balancingPolicy.ordinal());
+            buffer.putLong(nodeCount);
+            buffer.putLong(size);
+            buffer.flip();
+            writeFully(channel, buffer);
+
+            buffer.clear().position(BLOCK_HEADER_SIZE);
+            encoder.reset();
+            int blockCount = 0;
+            Node n = head;
+            while (n != null) {
+                final int position = buffer.position();
+                try {
+                    encoder.encode(n.data, buffer);
+                    if (countRepetitions) {
+                        DeltaVarintCodec.putVarLong(buffer, n.count);
+                    }
+                    blockCount++;
+                    n = n.next;
+                } catch (BufferOverflowException e) {
+                    if (blockCount == 0) {
+                        throw new IllegalArgumentException("An element does not fit in a block", e);
+                    }
+                    buffer.position(position);
+                    writeBlock(channel, buffer, blockCount);
+                    encoder.reset();
+                    blockCount = 0;
+                }
+            }
+            if (blockCount > 0) {
+                writeBlock(channel, buffer, blockCount);
+            }
+        } finally {
+            ByteBufferPool.SHARED.release(buffer);
+        }
+    }
+
+    /**
+     * Reads a list sorted by the natural order written by writeTo, building
+     * the balanced tree and the linked list together in O(n) as the blocks
+     * are read, without comparing the elements.
+     *
+     * @throws StreamCorruptedException if the channel does not have a list.
+     * @throws EOFException if the channel ends before the whole list.
+     * @throws IllegalArgumentException if the list that was written is not
+     *         sorted by the natural order.
+     */
+    public static <T extends Comparable<T>> SortedTreeList<T> readFrom(final ReadableByteChannel channel,
+            final Decoder<T> decoder) throws IOException {
+        return readFrom(channel, decoder, null, null, null);
+    }
+
+    /**
+     * Reads a list sorted by a comparator written by writeTo. The comparator
+     * is not written, so it is up to the caller to give the one the list was
+     * sorted by.
+     *
+     * @throws IllegalArgumentException if the list that was written is not
+     *         sorted by a comparator.
+     */
+    public static <T> SortedTreeList<T> readFrom(final ReadableByteChannel channel, final Decoder<T> decoder,
+            final Comparator<? super T> comparator) throws IOException {
+        return readFrom(channel, decoder, comparator, null, null);
+    }
+
+    /**
+     * Reads a list sorted by a long key written by writeTo, extracting the
+     * keys again with the given extractor.
+     *
+     * @throws IllegalArgumentException if the list that was written is not
+     *         sorted by a key.
+     */
+    public static <T> SortedTreeList<T> readFrom(final ReadableByteChannel channel, final Decoder<T> decoder,
+            final ToLongFunction<? super T> keyExtractor) throws IOException {
+        return readFrom(channel, decoder, null, keyExtractor, null);
+    }
+
+    /**
+     * Reads a list of intervals written by writeTo, extracting their starts
+     * and ends again with the given extractors.
+     *
+     * @throws IllegalArgumentException if the list that was written is not
+     *         of intervals.
+     */
+    public static <T> SortedTreeList<T> readFrom(final ReadableByteChannel channel, final Decoder<T> decoder,
+            final ToLongFunction<? super T> startExtractor, final ToLongFunction<? super T> endExtractor)
+            throws IOException {
+        return readFrom(channel, decoder, null, startExtractor, endExtractor);
+    }
+
+    private static <T> SortedTreeList<T> readFrom(final ReadableByteChannel channel, final Decoder<T> decoder,
+            final Comparator<? super T> comparator, final ToLongFunction<? super T> keyExtractor,
+            final ToLongFunction<? super T> endExtractor) throws IOException {
+        final ByteBuffer buffer = ByteBufferPool.SHARED.acquire();
+        try {
+            readFully(channel, buffer, SERIALIZATION_HEADER_SIZE);
+            final int magic = buffer.getInt();
+            final byte flags = buffer.get();
+            final byte policy = buffer.get();
+            final long nodeCount = buffer.getLong();
+            final long size = buffer.getLong();
+            final int orderFlag = flags & ~3;
+            if (magic != SERIALIZATION_MAGIC || (flags & 3) == 2
+                    || (orderFlag != 0 && orderFlag != ORDER_BY_COMPARATOR && orderFlag != ORDER_BY_KEY
+                            && orderFlag != ORDER_BY_INTERVAL)
+                    || (orderFlag == ORDER_BY_INTERVAL && (flags & 2) != 0)
+                    || policy < 0 || policy >= BalancingPolicy.values().length || nodeCount < 0L) {
+                throw new StreamCorruptedException("Invalid header of a sorted list");
+            } else if (orderFlag != getOrderFlag(comparator, keyExtractor, endExtractor)) {
+                throw new IllegalArgumentException("The list was written with a different kind of order");
+            }
+
+            final SortedTreeList<T> sortedTreeList = new SortedTreeList<>((flags & 1) != 0, (flags & 2) != 0,
+                    BalancingPolicy.values()[policy], comparator, keyExtractor, endExtractor);
+            final SortedTreeList<T>.BlockReader blockReader = sortedTreeList.new BlockReader(channel, buffer, decoder);
+            try {
+                sortedTreeList.rebuild(blockReader, nodeCount);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                throw new StreamCorruptedException("Invalid block of a sorted list");
+            }
+            if (blockReader.hasNext() || buffer.hasRemaining() || sortedTreeList.size != size) {
+                throw new StreamCorruptedException("Invalid number of elements of a sorted list");
+            }
+
+            return sortedTreeList;
+        } finally {
+            ByteBufferPool.SHARED.release(buffer);
+        }
     }
 
     public TreeNode<T> getRoot() {
@@ -57,48 +383,683 @@ public class SortedTreeList<T extends Comparable<T>> {
     }
 
     public void insert(final T data) {
-        doInsert(data);
+        final long start = startTiming();
+        doOffer(data);
+        recordLatency(OperationMetrics.INSERT, start);
+    }
+
+    /**
+     * Bounds the number of elements of the list, evicting from the given side
+     * the ones in excess, now and after every insertion. Long.MAX_VALUE means
+     * no bound.
+     *
+     * @throws IllegalArgumentException if the capacity is not positive.
+     */
+    public void setCapacity(final long capacity, final EvictionSide evictionSide) {
+        if (capacity < 1L) {
+            throw new IllegalArgumentException("The capacity must be positive");
+        }
+
+        this.capacity = capacity;
+        this.evictionSide = evictionSide;
+        evictExcess();
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Inserts an element, unless the list is full and it would be evicted
+     * right away, which is found by a single comparison with the element at
+     * the eviction side. When it is inserted into a full list, the element
+     * at the eviction side is removed, through the head or tail without any
+     * search.
+     *
+     * @return the evicted element, or the given one if it was not inserted
+     *         (because it would be evicted, or it was repeated), or null if
+     *         nothing was evicted.
+     */
+    public T offer(final T data) {
+        final long start = startTiming();
+        final T result = doOffer(data);
+        recordLatency(OperationMetrics.INSERT, start);
+        return result;
+    }
+
+    /**
+     * Inserts an element starting the search from a node of this list
+     * instead of the root. When the element goes right after the hint it is
+     * attached there with just two comparisons, otherwise the search climbs
+     * from the hint only as far as needed.
+     *
+     * @return the node of the inserted element (to be used as the next
+     *         hint), or null if it was not inserted because it was repeated
+     *         or the list is full and it would be evicted.
+     * @throws IllegalArgumentException if the hint is not a node of this list.
+     */
+    public ListNode<T> insertAfterHint(final ListNode<T> hint, final T data) {
+        final Node finger = getOwnNode(hint);
+        if (isRejected(data)) {
+            return null;
+        }
+
+        final long start = startTiming();
+        final Node inserted = doInsertAfterHint(finger, data);
+        evictExcess();
+        recordLatency(OperationMetrics.INSERT, start);
+        return inserted;
+    }
+
+    private Node doInsertAfterHint(final Node finger, final T data) {
+        final long key = getKey(data);
+
+        // An element equal to the hint goes before it (and its equals), as
+        // in a descent, so only the ones greater than it can go right after.
+        int comparison = compare(data, key, finger);
+        if (comparison > 0) {
+            int nextComparison = finger.next != null ? compare(data, key, finger.next) : -1;
+            if (nextComparison == 0 && countRepetitions) {
+                return addOccurrences(finger.next, 1L);
+            } else if (nextComparison == 0 && !allowRepetitions) {
+                return null;
+            } else if (nextComparison <= 0) {
+                return doInsertAfter(finger, data);
+            }
+        }
+
+        return doInsertNear(finger, data, key);
+    }
+
+    /**
+     * Inserts all the elements of a batch. The batch is sorted first; when
+     * all of it goes after the last element (and with AVL balancing), a tree
+     * is built for it in linear time and joined in O(log n). Otherwise, when
+     * it is large compared to the list, it is merged with the linked list and
+     * the tree is rebuilt in linear time, or else every element is inserted
+     * starting the search from the previously inserted one.
+     */
+    @SuppressWarnings("unchecked")
+    public void insertAll(final Collection<? extends T> data) {
+        final long start = startTiming();
+        final Object[] batch = data.toArray();
+        Arrays.sort(batch, (data1, data2) -> compare((T) data1, (T) data2));
+
+        if (batch.length > 0 && tail != null && balancingPolicy == BalancingPolicy.AVL
+                && compare(tail.data, (T) batch[0]) < 0) {
+            final List<Node> nodes = mergeNodes(null, batch);
+            final SortedTreeList<T> upper = newEmptyList();
+            upper.rebuild(nodes.iterator(), nodes.size());
+            append(upper);
+        } else if (isMergeCheaper(batch.length)) {
+            mergeAndRebuild(batch);
+        } else {
+            insertSortedBatch(batch);
+        }
+        evictExcess();
+        recordLatency(OperationMetrics.INSERT, start);
     }
 
     public boolean contains(final T data) {
-        return doFind(data) != null;
+        return find(data) != null;
     }
 
     public ListNode<T> find(final T data) {
-        return doFind(data);
+        final long start = startTiming();
+        final Node found = doFind(data);
+        recordLatency(OperationMetrics.FIND, start);
+        return found;
     }
 
     public ListNode<T> findFirst(final T data) {
-        return findFirstFirstOrLast(data, true);
+        final long start = startTiming();
+        final ListNode<T> found = findFirstFirstOrLast(data, true);
+        recordLatency(OperationMetrics.FIND, start);
+        return found;
     }
 
     public ListNode<T> findLast(final T data) {
-        return findFirstFirstOrLast(data, false);
+        final long start = startTiming();
+        final ListNode<T> found = findFirstFirstOrLast(data, false);
+        recordLatency(OperationMetrics.FIND, start);
+        return found;
+    }
+
+    /**
+     * Gets the greatest element less than or equal to the given one, or null
+     * if there is none.
+     */
+    public T floor(final T data) {
+        return getData(floorNode(data));
+    }
+
+    /**
+     * Gets the least element greater than or equal to the given one, or null
+     * if there is none.
+     */
+    public T ceiling(final T data) {
+        return getData(ceilingNode(data));
+    }
+
+    /**
+     * Gets the greatest element strictly less than the given one, or null if
+     * there is none.
+     */
+    public T lower(final T data) {
+        return getData(lowerNode(data));
+    }
+
+    /**
+     * Gets the least element strictly greater than the given one, or null if
+     * there is none.
+     */
+    public T higher(final T data) {
+        return getData(higherNode(data));
+    }
+
+    /**
+     * Gets the node of the greatest element less than or equal to the given
+     * one (the last of its repetitions), found with a single descent, from
+     * which the list can be traversed in either direction.
+     */
+    public ListNode<T> floorNode(final T data) {
+        final long start = startTiming();
+        final Node found = upperBound(data, true);
+        recordLatency(OperationMetrics.FIND, start);
+        return found;
+    }
+
+    /**
+     * Gets the node of the least element greater than or equal to the given
+     * one (the first of its repetitions), found with a single descent.
+     */
+    public ListNode<T> ceilingNode(final T data) {
+        final long start = startTiming();
+        final Node found = lowerBound(data, true);
+        recordLatency(OperationMetrics.FIND, start);
+        return found;
+    }
+
+    public ListNode<T> lowerNode(final T data) {
+        final long start = startTiming();
+        final Node found = upperBound(data, false);
+        recordLatency(OperationMetrics.FIND, start);
+        return found;
+    }
+
+    public ListNode<T> higherNode(final T data) {
+        final long start = startTiming();
+        final Node found = lowerBound(data, false);
+        recordLatency(OperationMetrics.FIND, start);
+        return found;
+    }
+
+    /**
+     * Gets lazily, sorted by start, the intervals that overlap the closed
+     * range [from, to]. Only the subtrees whose maximum end reaches from are
+     * entered, and the search stops at the first start after to, so it
+     * visits O(log n + k) nodes when the k results are clustered, and never
+     * more than O(k log n).
+     *
+     * @throws IllegalStateException if the list is not of intervals.
+     */
+    public Iterable<T> overlapping(final long from, final long to) {
+        if (endExtractor == null) {
+            throw new IllegalStateException("The list is not of intervals");
+        }
+        return () -> new OverlapIterator(from, to);
+    }
+
+    /**
+     * Gets lazily, sorted by start, the intervals that contain a point.
+     *
+     * @throws IllegalStateException if the list is not of intervals.
+     */
+    public Iterable<T> stabbing(final long point) {
+        return overlapping(point, point);
+    }
+
+    /**
+     * Makes every node keep the aggregate of its subtree, the combination in
+     * sorted order of the values lifted from its elements, so aggregate can
+     * compute it for any range in O(log n). The combiner must be associative
+     * and the identity neutral for it, e.g. (0, lift, Long::sum) for sums or
+     * (Long.MAX_VALUE, lift, Math::min) for minimums. Setting it on a list
+     * that is not empty takes O(n), and the first time it replaces the nodes
+     * by ones keeping the aggregates, so the nodes gotten before (e.g. from
+     * find) no longer belong to the list.
+     */
+    public void setAggregator(final long identity, final ToLongFunction<? super T> lift,
+            final LongBinaryOperator combiner) {
+        aggregationIdentity = identity;
+        aggregationLift = lift;
+        aggregationCombiner = combiner;
+
+        if (root == null || root instanceof SortedTreeList.AggregatedNode) {
+            updateAggregates(root);
+        } else {
+            final List<Node> nodes = new ArrayList<>();
+            for (Node current = head; current != null; current = current.next) {
+                final Node n = newNode(current.data, null);
+                n.count = current.count;
+                nodes.add(n);
+            }
+            rebuild(nodes.iterator(), nodes.size());
+        }
+    }
+
+    /**
+     * Gets the aggregate of all the elements, in O(1).
+     *
+     * @throws IllegalStateException if no aggregator was set.
+     */
+    public long aggregate() {
+        if (aggregationLift == null) {
+            throw new IllegalStateException("No aggregator was set");
+        }
+        return getAggregate(root);
+    }
+
+    /**
+     * Gets the aggregate of the elements between from and to (both
+     * inclusive), or the identity if there are none. It descends to the
+     * node where the paths to both bounds split, and then along each path
+     * takes the aggregates of the whole subtrees within the range, so it is
+     * O(log n) for any number of elements in between.
+     *
+     * @throws IllegalStateException if no aggregator was set.
+     */
+    public long aggregate(final T from, final T to) {
+        if (aggregationLift == null) {
+            throw new IllegalStateException("No aggregator was set");
+        }
+
+        final long fromKey = getKey(from);
+        final long toKey = getKey(to);
+        Node split = root;
+        while (split != null) {
+            if (compare(from, fromKey, split) > 0) {
+                split = split.right;
+            } else if (compare(to, toKey, split) < 0) {
+                split = split.left;
+            } else {
+                break;
+            }
+        }
+        if (split == null) {
+            return aggregationIdentity;
+        }
+
+        // The elements found along each path are before (for the lower
+        // bound) or after (for the upper one) the ones already combined.
+        long lower = aggregationIdentity;
+        for (Node current = split.left; current != null;) {
+            if (compare(from, fromKey, current) <= 0) {
+                lower = combine(combine(getOwnAggregate(current), getAggregate(current.right)), lower);
+                current = current.left;
+            } else {
+                current = current.right;
+            }
+        }
+
+        long upper = aggregationIdentity;
+        for (Node current = split.right; current != null;) {
+            if (compare(to, toKey, current) >= 0) {
+                upper = combine(upper, combine(getAggregate(current.left), getOwnAggregate(current)));
+                current = current.right;
+            } else {
+                current = current.left;
+            }
+        }
+
+        return combine(combine(lower, getOwnAggregate(split)), upper);
     }
 
     public T popFirst() {
         if (head == null) {
             return null;
         }
-        return popNode(head);
+        final long start = startTiming();
+        final T result = popNode(head);
+        recordLatency(OperationMetrics.REMOVE, start);
+        return result;
     }
 
     public T popLast() {
         if (tail == null) {
             return null;
         }
-        return popNode(tail);
+        final long start = startTiming();
+        final T result = popNode(tail);
+        recordLatency(OperationMetrics.REMOVE, start);
+        return result;
     }
 
     public void remove(final T data) {
+        final long start = startTiming();
         final Node current = doFind(data);
         if (current != null) {
-            removeNode(current);
+            popNode(current);
+        }
+        recordLatency(OperationMetrics.REMOVE, start);
+    }
+
+    /**
+     * Removes the element of a node of this list without searching for it,
+     * when counting repetitions only one of its occurrences.
+     *
+     * @return the removed element.
+     * @throws IllegalArgumentException if the node is not of this list.
+     */
+    public T removeNode(final ListNode<T> node) {
+        final long start = startTiming();
+        final T result = popNode(getOwnNode(node));
+        recordLatency(OperationMetrics.REMOVE, start);
+        return result;
+    }
+
+    /**
+     * Removes up to the given number of occurrences of an element.
+     *
+     * @return the number of occurrences that were removed.
+     */
+    public long remove(final T data, final long occurrences) {
+        long removed = 0L;
+        Node current;
+
+        while (removed < occurrences && (current = doFind(data)) != null) {
+            if (current.count > occurrences - removed) {
+                addOccurrences(current, removed - occurrences);
+                removed = occurrences;
+            } else {
+                removed += current.count;
+                unlinkNode(current);
+            }
+        }
+
+        return removed;
+    }
+
+    /**
+     * Removes the elements from the given one (inclusive) to the other one
+     * (exclusive), by splitting the list at both of them and joining the
+     * outer parts.
+     *
+     * @return the number of removed elements.
+     */
+    public long removeRange(final T from, final T to) {
+        final SortedTreeList<T> middle = split(from);
+        final SortedTreeList<T> upper = middle.split(to);
+        join(this, upper);
+        return middle.size;
+    }
+
+    /**
+     * Creates an empty list with the same settings as this one.
+     */
+    private SortedTreeList<T> newEmptyList() {
+        final SortedTreeList<T> sortedTreeList = new SortedTreeList<>(allowRepetitions, countRepetitions,
+                balancingPolicy, comparator, keyExtractor, endExtractor);
+        sortedTreeList.aggregationIdentity = aggregationIdentity;
+        sortedTreeList.aggregationLift = aggregationLift;
+        sortedTreeList.aggregationCombiner = aggregationCombiner;
+        return sortedTreeList;
+    }
+
+    /**
+     * Moves the elements greater than or equal to the given one to a new list
+     * with the same settings, which is returned. With AVL balancing the tree
+     * is split in O(log n), otherwise both parts are rebuilt in linear time.
+     */
+    public SortedTreeList<T> split(final T data) {
+        final SortedTreeList<T> upper = newEmptyList();
+        final Node lastLower = upperBound(data, false);
+        final Node firstUpper = lastLower != null ? lastLower.next : head;
+
+        if (firstUpper == null) {
+            return upper;
+        } else if (lastLower == null) {
+            upper.root = root;
+            upper.head = head;
+            upper.tail = tail;
+            upper.size = size;
+            root = head = tail = null;
+            size = 0L;
+            modCount++;
+            return upper;
+        }
+
+        upper.head = firstUpper;
+        upper.tail = tail;
+        tail = lastLower;
+        lastLower.next = firstUpper.prev = null;
+
+        if (balancingPolicy == BalancingPolicy.AVL) {
+            final Split split = splitTree(root, data, getKey(data));
+            root = split.lower;
+            upper.root = split.upper;
+        } else {
+            final List<Node> lowerNodes = getNodes(head);
+            final List<Node> upperNodes = getNodes(upper.head);
+            rebuild(lowerNodes.iterator(), lowerNodes.size());
+            upper.rebuild(upperNodes.iterator(), upperNodes.size());
+        }
+
+        size = getSubtreeSize(root);
+        upper.size = getSubtreeSize(upper.root);
+        modCount++;
+        return upper;
+    }
+
+    /**
+     * Moves all the elements of the upper list, which must not be less than
+     * the ones of the lower list, to the end of the lower list, which is
+     * returned. With AVL balancing the trees are joined in O(log n),
+     * otherwise the joined tree is rebuilt in linear time.
+     *
+     * @throws IllegalArgumentException if the lists are the same one, have
+     *         different settings for repetitions or their elements overlap.
+     */
+    public static <T> SortedTreeList<T> join(final SortedTreeList<T> lower,
+            final SortedTreeList<T> upper) {
+        if (lower == upper) {
+            throw new IllegalArgumentException("Cannot join a list with itself");
+        } else if (lower.allowRepetitions != upper.allowRepetitions
+                || lower.countRepetitions != upper.countRepetitions) {
+            throw new IllegalArgumentException("The lists have different settings for repetitions");
+        } else if (lower.comparator != upper.comparator || lower.keyExtractor != upper.keyExtractor
+                || lower.endExtractor != upper.endExtractor) {
+            throw new IllegalArgumentException("The lists are not sorted by the same order");
+        } else if (lower.aggregationIdentity != upper.aggregationIdentity
+                || lower.aggregationLift != upper.aggregationLift
+                || lower.aggregationCombiner != upper.aggregationCombiner) {
+            throw new IllegalArgumentException("The lists have different aggregators");
+        }
+
+        if (upper.head == null) {
+            return lower;
+        } else if (lower.head != null) {
+            int comparison = lower.compare(lower.tail, upper.head);
+            if (comparison > 0 || (comparison == 0 && !lower.allowRepetitions)) {
+                throw new IllegalArgumentException("The elements of the lists overlap");
+            } else if (comparison == 0 && lower.countRepetitions) {
+                lower.addOccurrences(lower.tail, upper.head.count);
+                upper.unlinkNode(upper.head);
+            }
+        }
+
+        lower.append(upper);
+        lower.evictExcess();
+        return lower;
+    }
+
+    /**
+     * Starts keeping stats of the operations of the list (if it was not
+     * already), to be gotten with getStats. Keeping them costs a few
+     * counter increments per operation, and nothing at all for the lists
+     * that do not enable them.
+     */
+    public void enableStats() {
+        if (metrics == null) {
+            metrics = new OperationMetrics();
+        }
+    }
+
+    public void resetStats() {
+        if (metrics != null) {
+            metrics = new OperationMetrics();
+        }
+    }
+
+    /**
+     * @throws IllegalStateException if the stats are not enabled.
+     */
+    public SortedTreeListStats getStats() {
+        if (metrics == null) {
+            throw new IllegalStateException("The stats are not enabled");
         }
+        return new SortedTreeListStats(metrics, getRank(root), size);
     }
 
+    /**
+     * Enables the stats and registers them as an MXBean in the platform
+     * MBean server, named datastructures:type=SortedTreeList,name=(the given
+     * name). It is up to the caller to unregister it.
+     */
+    public ObjectName registerStatsMBean(final String name) throws JMException {
+        enableStats();
+        final ObjectName objectName = new ObjectName("datastructures:type=SortedTreeList,name="
+                + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(new StatsMXBean(), objectName);
+        return objectName;
+    }
+
+    /**
+     * Gets the number of occurrences of an element.
+     */
+    public long count(final T data) {
+        return countBetween(data, data);
+    }
+
+    /**
+     * Gets an iterator in ascending order, which is fail-fast and whose
+     * remove unlinks the last returned element without searching for it.
+     */
+    @Override
     public Iterator<T> iterator() {
-        return new TreeListIterator(head);
+        return new TreeListIterator(head, tail, true);
+    }
+
+    public Iterator<T> descendingIterator() {
+        return new TreeListIterator(tail, head, false);
+    }
+
+    /**
+     * Gets a fail-fast iterator that can go in both directions, starting
+     * before the first element. Elements can be removed through it, but not
+     * set nor added since the order is given by the list.
+     */
+    public ListIterator<T> listIterator() {
+        return new TreeListListIterator(head, 0L);
+    }
+
+    /**
+     * Gets a fail-fast iterator that can go in both directions, starting
+     * right before the element of the given node, or after the last element
+     * if the node is null.
+     *
+     * @throws IllegalArgumentException if the node is not of this list.
+     */
+    public ListIterator<T> listIterator(final ListNode<T> from) {
+        if (from == null) {
+            return new TreeListListIterator(null, size);
+        }
+        final Node n = getOwnNode(from);
+        return new TreeListListIterator(n, getPosition(n));
+    }
+
+    /**
+     * Gets a spliterator that splits by position, halving its range with the
+     * subtree sizes in O(log n), so the halves are always balanced.
+     * The list must not be modified while it is being traversed.
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        return new TreeListSpliterator(0L, size);
+    }
+
+    public Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    public Stream<T> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    /**
+     * Gets a view of the elements between from and to, which is not copied
+     * but looked up every time an iterator is requested: it only seeks the
+     * boundaries in O(log n) and then follows the linked list.
+     * A null bound means that the range is unbounded on that side.
+     */
+    public Range range(final T from, final boolean fromInclusive, final T to, final boolean toInclusive) {
+        return new Range(from, fromInclusive, to, toInclusive);
+    }
+
+    public Range headList(final T to, final boolean inclusive) {
+        return new Range(null, true, to, inclusive);
+    }
+
+    public Range tailList(final T from, final boolean inclusive) {
+        return new Range(from, inclusive, null, true);
+    }
+
+    /**
+     * Gets the element at the given position in the sorted order (starting
+     * at 0), or null if the position is out of range.
+     */
+    public T get(final long index) {
+        final Node node = select(index);
+        return node != null ? node.data : null;
+    }
+
+    /**
+     * Gets the number of elements that are strictly less than the given one,
+     * i.e. the position that it has or would have in the sorted order.
+     */
+    public long rank(final T data) {
+        return countLessThan(data, false);
+    }
+
+    /**
+     * Gets the position of the first occurrence of the given element,
+     * or -1 if it is not contained.
+     */
+    public long indexOf(final T data) {
+        final long key = getKey(data);
+        long index = 0L;
+        boolean found = false;
+        Node current = root;
+
+        while (current != null) {
+            int comparison = compare(data, key, current);
+            if (comparison <= 0) {
+                found = found || comparison == 0;
+                current = current.left;
+            } else {
+                index += getSubtreeSize(current.left) + current.count;
+                current = current.right;
+            }
+        }
+
+        return found ? index : -1L;
+    }
+
+    /**
+     * Gets the number of elements between from and to (both inclusive).
+     */
+    public long countBetween(final T from, final T to) {
+        return Math.max(0L, countLessThan(to, true) - countLessThan(from, false));
     }
 
     private void insertBeforeInList(final Node target, final Node n) {
@@ -126,16 +1087,18 @@ public class SortedTreeList<T extends Comparable<T>> {
     }
 
     private Node insertLeftInTree(final Node target, final T data) {
-        target.left = new Node(data, target);
+        target.left = newNode(data, target);
         insertBeforeInList(target, target.left);
         size++;
+        modCount++;
         return target.left;
     }
 
     private Node insertRightInTree(final Node target, final T data) {
-        target.right = new Node(data, target);
+        target.right = newNode(data, target);
         insertAfterInList(target, target.right);
         size++;
+        modCount++;
         return target.right;
     }
 
@@ -147,6 +1110,117 @@ public class SortedTreeList<T extends Comparable<T>> {
         n.height = 1 + Math.max(n.left != null ? n.left.height : -1L, n.right != null ? n.right.height : -1);
     }
 
+    private long getSubtreeSize(final Node n) {
+        return n != null ? n.subtreeSize : 0L;
+    }
+
+    /**
+     * Updates the size of the subtree of a node, and in interval mode its
+     * maximum end too, as well as its aggregate if there is an aggregator,
+     * since all of them change along the same paths.
+     */
+    private void setSubtreeSize(final Node n) {
+        n.subtreeSize = n.count + getSubtreeSize(n.left) + getSubtreeSize(n.right);
+        if (endExtractor != null) {
+            final IntervalNode intervalNode = (IntervalNode) n;
+            intervalNode.maxEnd = Math.max(intervalNode.end, Math.max(getMaxEnd(n.left), getMaxEnd(n.right)));
+        }
+        if (aggregationLift != null) {
+            ((AggregatedNode) n).aggregate = combine(combine(getAggregate(n.left), getOwnAggregate(n)),
+                    getAggregate(n.right));
+        }
+    }
+
+    private long getMaxEnd(final Node n) {
+        return n != null ? ((IntervalNode) n).maxEnd : Long.MIN_VALUE;
+    }
+
+    private long combine(final long aggregate1, final long aggregate2) {
+        return aggregationCombiner.applyAsLong(aggregate1, aggregate2);
+    }
+
+    private long getAggregate(final Node n) {
+        return n != null ? ((AggregatedNode) n).aggregate : aggregationIdentity;
+    }
+
+    /**
+     * Gets the aggregate of the occurrences of the element of a node, by
+     * combining its value with itself in O(log count).
+     */
+    private long getOwnAggregate(final Node n) {
+        final long value = ((AggregatedNode) n).value;
+        if (n.count == 1L) {
+            return value;
+        }
+
+        long result = aggregationIdentity;
+        long power = value;
+        for (long remaining = n.count; remaining > 0L; remaining >>= 1) {
+            if ((remaining & 1L) != 0L) {
+                result = combine(result, power);
+            }
+            power = combine(power, power);
+        }
+        return result;
+    }
+
+    private void updateAggregates(final Node n) {
+        if (n != null) {
+            updateAggregates(n.left);
+            updateAggregates(n.right);
+            ((AggregatedNode) n).value = aggregationLift.applyAsLong(n.data);
+            setSubtreeSize(n);
+        }
+    }
+
+    private Node addOccurrences(final Node n, final long occurrences) {
+        n.count += occurrences;
+        updateSubtreeSizesUpToRoot(n);
+        size += occurrences;
+        modCount++;
+        return n;
+    }
+
+    private long getRank(final Node n) {
+        return n != null ? n.height : -1L;
+    }
+
+    /**
+     * Gets the number of nodes that a lookup lets a descent from the root go
+     * through: twice the rank of the root, which bounds the height. It is
+     * only reached by a descent going round in circles through nodes that
+     * another thread is rotating, as the optimistic reads of
+     * ConcurrentSortedTreeList may do, and which are then run again under
+     * the lock.
+     */
+    private long getDescentLimit() {
+        return 2L * (getRank(root) + 1L);
+    }
+
+    private static void checkDescentStep(final long remainingSteps) {
+        if (remainingSteps < 0L) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    private void updateSubtreeSizesUpToRoot(final Node n) {
+        for (Node current = n; current != null; current = current.parent) {
+            setSubtreeSize(current);
+        }
+    }
+
+    /**
+     * Updates what a node keeps about its subtree after its children changed.
+     * With WAVL the height field holds the rank, which is never derived from
+     * the children but promoted and demoted explicitly.
+     */
+    private void update(final Node n) {
+        if (balancingPolicy == BalancingPolicy.AVL) {
+            setHeight(n);
+        }
+        setSubtreeSize(n);
+    }
+
     private void swapChild(final Node parent, final Node currentChild, final Node newChild) {
         if (parent != null) {
             if (parent.left == currentChild) {
@@ -160,6 +1234,9 @@ public class SortedTreeList<T extends Comparable<T>> {
     }
 
     private Node rotateLeft(final Node n) {
+        if (OperationMetrics.SUPPORTED && metrics != null) {
+            metrics.rotations++;
+        }
         final Node newRoot = n.right;
         n.right = newRoot.left;
         newRoot.left = n;
@@ -171,13 +1248,16 @@ public class SortedTreeList<T extends Comparable<T>> {
             n.right.parent = n;
         }
 
-        setHeight(n);
-        setHeight(newRoot);
+        update(n);
+        update(newRoot);
 
         return newRoot;
     }
 
     private Node rotateRight(final Node n) {
+        if (OperationMetrics.SUPPORTED && metrics != null) {
+            metrics.rotations++;
+        }
         final Node newRoot = n.left;
         n.left = newRoot.right;
         newRoot.right = n;
@@ -189,8 +1269,8 @@ public class SortedTreeList<T extends Comparable<T>> {
             n.left.parent = n;
         }
 
-        setHeight(n);
-        setHeight(newRoot);
+        update(n);
+        update(newRoot);
 
         return newRoot;
     }
@@ -201,13 +1281,13 @@ public class SortedTreeList<T extends Comparable<T>> {
         if (balanceFactor >= 2) {
             if (getBalanceFactor(n.left) <= -1) {
                 rotateLeft(n.left);
-                setHeight(n);
+                update(n);
             }
             return rotateRight(n);
         } else if (balanceFactor <= -2) {
             if (getBalanceFactor(n.right) >= 1) {
                 rotateRight(n.right);
-                setHeight(n);
+                update(n);
             }
             return rotateLeft(n);
         }
@@ -218,15 +1298,189 @@ public class SortedTreeList<T extends Comparable<T>> {
         Node current = n;
 
         while (current != null) {
-            setHeight(current);
+            if (OperationMetrics.SUPPORTED && metrics != null) {
+                metrics.rebalancingSteps++;
+            }
+            final long height = current.height;
+            update(current);
             current = balance(current);
+            if (current.height == height) {
+                // Nothing changes above for the balance, only the sizes.
+                updateSubtreeSizesUpToRoot(current.parent);
+                return;
+            }
             current = current.parent;
         }
     }
 
+    private void rebalanceAfterInsert(final Node n) {
+        if (balancingPolicy == BalancingPolicy.WAVL) {
+            updateSubtreeSizesUpToRoot(n.parent);
+            wavlRebalanceAfterInsert(n);
+        } else {
+            andjustAndBalanceUpToRoot(n.parent);
+        }
+    }
+
+    private void rebalanceAfterRemoval(final Node parent, final boolean fromLeft) {
+        if (balancingPolicy == BalancingPolicy.WAVL) {
+            updateSubtreeSizesUpToRoot(parent);
+            wavlRebalanceAfterRemoval(parent, fromLeft);
+        } else {
+            andjustAndBalanceUpToRoot(parent);
+        }
+    }
+
+    private void wavlRebalanceAfterInsert(final Node n) {
+        Node x = n;
+        Node p = x.parent;
+
+        // While x is a 0-child, either its parent is promoted or a rotation
+        // finishes the rebalancing.
+        while (p != null && p.height == x.height) {
+            if (OperationMetrics.SUPPORTED && metrics != null) {
+                metrics.rebalancingSteps++;
+            }
+            final boolean xIsLeft = p.left == x;
+            final Node sibling = xIsLeft ? p.right : p.left;
+
+            if (p.height - getRank(sibling) == 1) {
+                p.height++;
+                x = p;
+                p = p.parent;
+                continue;
+            }
+
+            final Node inner = xIsLeft ? x.right : x.left;
+            if (x.height - getRank(inner) == 2) {
+                if (xIsLeft) {
+                    rotateRight(p);
+                } else {
+                    rotateLeft(p);
+                }
+                p.height--;
+            } else {
+                if (xIsLeft) {
+                    rotateLeft(x);
+                    rotateRight(p);
+                } else {
+                    rotateRight(x);
+                    rotateLeft(p);
+                }
+                inner.height++;
+                x.height--;
+                p.height--;
+            }
+            return;
+        }
+    }
+
+    private void wavlRebalanceAfterRemoval(final Node parent, final boolean fromLeft) {
+        Node p = parent;
+        boolean xIsLeft = fromLeft;
+
+        if (p != null && p.left == null && p.right == null && p.height == 1L) {
+            // A leaf cannot have two 2-children.
+            p.height = 0L;
+            xIsLeft = p.parent != null && p.parent.left == p;
+            p = p.parent;
+        }
+
+        // While x is a 3-child, either its parent is demoted (along with its
+        // sibling, if it has two 2-children) or a rotation finishes.
+        while (p != null && p.height - getRank(xIsLeft ? p.left : p.right) == 3) {
+            if (OperationMetrics.SUPPORTED && metrics != null) {
+                metrics.rebalancingSteps++;
+            }
+            final Node sibling = xIsLeft ? p.right : p.left;
+
+            if (p.height - sibling.height == 2) {
+                p.height--;
+            } else if (sibling.height - getRank(sibling.left) == 2 && sibling.height - getRank(sibling.right) == 2) {
+                sibling.height--;
+                p.height--;
+            } else {
+                final Node outer = xIsLeft ? sibling.right : sibling.left;
+                if (sibling.height - getRank(outer) == 1) {
+                    if (xIsLeft) {
+                        rotateLeft(p);
+                    } else {
+                        rotateRight(p);
+                    }
+                    sibling.height++;
+                    p.height -= p.left == null && p.right == null ? 2 : 1;
+                } else {
+                    final Node inner = xIsLeft ? sibling.left : sibling.right;
+                    if (xIsLeft) {
+                        rotateRight(sibling);
+                        rotateLeft(p);
+                    } else {
+                        rotateLeft(sibling);
+                        rotateRight(p);
+                    }
+                    inner.height += 2;
+                    sibling.height--;
+                    p.height -= 2;
+                }
+                return;
+            }
+
+            xIsLeft = p.parent != null && p.parent.left == p;
+            p = p.parent;
+        }
+    }
+
+    private void appendInList(final Node n) {
+        n.prev = tail;
+        n.next = null;
+
+        if (tail != null) {
+            tail.next = n;
+        } else {
+            head = n;
+        }
+        tail = n;
+    }
+
+    private Node buildBalanced(final Iterator<Node> nodes, final long count) {
+        if (count == 0L) {
+            return null;
+        }
+
+        final long leftCount = (count - 1) / 2;
+        final Node left = buildBalanced(nodes, leftCount);
+        final Node n = nodes.next();
+        appendInList(n);
+        final Node right = buildBalanced(nodes, count - 1 - leftCount);
+
+        n.left = left;
+        n.right = right;
+        if (left != null) {
+            left.parent = n;
+        }
+        if (right != null) {
+            right.parent = n;
+        }
+        setHeight(n);
+        setSubtreeSize(n);
+
+        return n;
+    }
+
+    private void rebuild(final Iterator<Node> nodes, final long count) {
+        root = head = tail = null;
+        root = buildBalanced(nodes, count);
+        if (root != null) {
+            root.parent = null;
+        }
+        size = getSubtreeSize(root);
+        modCount++;
+    }
+
     private Node doInsertWhenEmpty(final T data) {
-        root = head = tail = new Node(data);
+        root = head = tail = newNode(data, null);
         size++;
+        modCount++;
         return root;
     }
 
@@ -235,14 +1489,46 @@ public class SortedTreeList<T extends Comparable<T>> {
             return doInsertWhenEmpty(data);
         }
 
+        // Fast path for keys arriving in (almost) ascending order. An element
+        // equal to the tail goes through the descent, which places it before
+        // the elements equal to it, as it does for the other ones.
+        final long key = getKey(data);
+        int comparison = compare(data, key, tail);
+        if (comparison == 0 && countRepetitions) {
+            return addOccurrences(tail, 1L);
+        } else if (comparison > 0) {
+            return doInsertAfter(tail, data);
+        } else if (comparison == 0 && !allowRepetitions) {
+            return null;
+        }
+
+        return doInsert(root, data, key);
+    }
+
+    private Node doInsertAfter(final Node n, final T data) {
+        // If n has a right subtree its successor is the leftmost node there,
+        // which has no left child.
+        final Node newNode = n.right == null ? insertRightInTree(n, data) : insertLeftInTree(n.next, data);
+        rebalanceAfterInsert(newNode);
+        return newNode;
+    }
+
+    private Node doInsert(final Node start, final T data, final long key) {
         Node current = null;
-        Node target = root;
+        Node target = start;
         Node newNode = null;
 
+        if (OperationMetrics.SUPPORTED && metrics != null) {
+            metrics.searches++;
+        }
+
         while (target != null) {
             current = target;
+            if (OperationMetrics.SUPPORTED && metrics != null) {
+                metrics.nodesVisited++;
+            }
 
-            int comparison = data.compareTo(current.data);
+            int comparison = compare(data, key, current);
             if (comparison < 0) {
                 target = current.left;
                 if (current.left == null) {
@@ -253,6 +1539,8 @@ public class SortedTreeList<T extends Comparable<T>> {
                 if (current.right == null) {
                     newNode = insertRightInTree(current, data);
                 }
+            } else if (countRepetitions) {
+                return addOccurrences(current, 1L);
             } else if (allowRepetitions) {
                 target = current.left;
                 if (current.left == null) {
@@ -263,16 +1551,117 @@ public class SortedTreeList<T extends Comparable<T>> {
             }
         }
 
-        andjustAndBalanceUpToRoot(current);
+        rebalanceAfterInsert(newNode);
 
         return newNode;
     }
 
+    private Node doInsertNear(final Node finger, final T data, final long key) {
+        int comparison = compare(data, key, finger);
+        if (comparison == 0 && countRepetitions) {
+            return addOccurrences(finger, 1L);
+        } else if (comparison == 0 && !allowRepetitions) {
+            return null;
+        }
+
+        // Climbs up to the smallest subtree whose range of values includes
+        // the data, only comparing against the ancestors bounding that range.
+        // The data is taken as less than its equals, since the descent then
+        // places it before them.
+        Node start = finger;
+        while (start.parent != null) {
+            final Node parent = start.parent;
+            if ((comparison > 0) == (parent.left == start)) {
+                int parentComparison = compare(data, key, parent);
+                if (parentComparison == 0 && countRepetitions) {
+                    return addOccurrences(parent, 1L);
+                } else if (parentComparison == 0 && !allowRepetitions) {
+                    return null;
+                } else if ((parentComparison <= 0) == (comparison > 0)) {
+                    break;
+                }
+            }
+            start = parent;
+        }
+
+        return doInsert(start, data, key);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void insertSortedBatch(final Object[] batch) {
+        Node finger = null;
+
+        for (Object element : batch) {
+            final Node inserted = finger != null ? doInsertNear(finger, (T) element, getKey((T) element))
+                    : doInsert((T) element);
+            if (inserted != null) {
+                finger = inserted;
+            }
+        }
+    }
+
+    private boolean isMergeCheaper(final long batchSize) {
+        final long depth = Long.SIZE - Long.numberOfLeadingZeros(size + batchSize);
+        return batchSize * depth >= size;
+    }
+
+    private void mergeAndRebuild(final Object[] batch) {
+        final List<Node> merged = mergeNodes(head, batch);
+        rebuild(merged.iterator(), merged.size());
+    }
+
+    /**
+     * Merges the nodes from the given one onwards with new nodes for the
+     * elements of a sorted batch, dropping or counting the repetitions
+     * according to the settings of the list. When repetitions are allowed
+     * (and not counted) the new elements go before their equals, as insert
+     * places them.
+     */
+    @SuppressWarnings("unchecked")
+    private List<Node> mergeNodes(final Node first, final Object[] batch) {
+        // In counted mode the size is the number of occurrences, not of nodes.
+        final long nodeCount = (first != null && !countRepetitions ? size : 0L) + batch.length;
+        final List<Node> merged = new ArrayList<>((int) Math.min(nodeCount, Integer.MAX_VALUE));
+        final boolean batchFirst = allowRepetitions && !countRepetitions;
+        Node last = null;
+        Node current = first;
+        int i = 0;
+
+        while (current != null || i < batch.length) {
+            int comparison = i < batch.length && current != null ? compare(current.data, (T) batch[i]) : 0;
+            if (i >= batch.length || (current != null && (comparison < 0 || (comparison == 0 && !batchFirst)))) {
+                last = current;
+                merged.add(current);
+                current = current.next;
+            } else {
+                final T data = (T) batch[i++];
+                final boolean repeated = last != null && compare(last.data, data) == 0;
+                if (repeated && countRepetitions) {
+                    last.count++;
+                } else if (!repeated || allowRepetitions) {
+                    last = newNode(data, null);
+                    merged.add(last);
+                }
+            }
+        }
+
+        return merged;
+    }
+
     private Node doFind(final T data) {
+        final long key = getKey(data);
         Node current = root;
+        long steps = getDescentLimit();
+        if (OperationMetrics.SUPPORTED && metrics != null) {
+            metrics.searches++;
+        }
 
         while (current != null) {
-            int comparison = data.compareTo(current.data);
+            checkDescentStep(--steps);
+            if (OperationMetrics.SUPPORTED && metrics != null) {
+                metrics.nodesVisited++;
+            }
+            int comparison = compare(data, key, current);
             if (comparison < 0) {
                 current = current.left;
             } else if (comparison > 0) {
@@ -286,35 +1675,398 @@ public class SortedTreeList<T extends Comparable<T>> {
     }
 
     private Node findClosest(final T data, final boolean before) {
+        final long key = getKey(data);
         Node current = null;
         Node target = root;
+        long steps = getDescentLimit();
+
+        if (OperationMetrics.SUPPORTED && metrics != null) {
+            metrics.searches++;
+        }
 
         while (target != null) {
+            checkDescentStep(--steps);
             current = target;
+            if (OperationMetrics.SUPPORTED && metrics != null) {
+                metrics.nodesVisited++;
+            }
+
+            int comparison = compare(data, key, current);
+            if (comparison < 0 || (before && comparison == 0)) {
+                target = current.left;
+            } else if (comparison > 0 || (!before && comparison == 0)) {
+                target = current.right;
+            }
+        }
+
+        return current;
+    }
+
+    private Node select(final long index) {
+        long remaining = index;
+        Node current = root;
+        long steps = getDescentLimit();
+
+        while (current != null) {
+            checkDescentStep(--steps);
+            final long leftSize = getSubtreeSize(current.left);
+            if (remaining < leftSize) {
+                current = current.left;
+            } else if (remaining >= leftSize + current.count) {
+                remaining -= leftSize + current.count;
+                current = current.right;
+            } else {
+                return current;
+            }
+        }
+
+        return null;
+    }
+
+    private long countLessThan(final T data, final boolean inclusive) {
+        final long key = getKey(data);
+        long count = 0L;
+        Node current = root;
+        long steps = getDescentLimit();
+
+        while (current != null) {
+            checkDescentStep(--steps);
+            int comparison = compare(data, key, current);
+            if (comparison < 0 || (!inclusive && comparison == 0)) {
+                current = current.left;
+            } else {
+                count += getSubtreeSize(current.left) + current.count;
+                current = current.right;
+            }
+        }
+
+        return count;
+    }
+
+    private Node lowerBound(final T data, final boolean inclusive) {
+        final Node closest = findClosest(data, inclusive);
+        if (closest == null) {
+            return null;
+        }
+
+        int comparison = compare(data, getKey(data), closest);
+        return comparison < 0 || (inclusive && comparison == 0) ? closest : closest.next;
+    }
+
+    private Node upperBound(final T data, final boolean inclusive) {
+        final Node closest = findClosest(data, !inclusive);
+        if (closest == null) {
+            return null;
+        }
+
+        int comparison = compare(data, getKey(data), closest);
+        return comparison > 0 || (inclusive && comparison == 0) ? closest : closest.prev;
+    }
+
+    private ListNode<T> findFirstFirstOrLast(final T data, final boolean first) {
+        final long key = getKey(data);
+        Node closests = findClosest(data, first);
+        if (closests != null) {
+            if (compare(data, key, closests) == 0) {
+                return closests;
+            } else if (first && closests.next != null && compare(data, key, closests.next) == 0) {
+                return closests.next;
+            } else if (!first && closests.prev != null && compare(data, key, closests.prev) == 0) {
+                return closests.prev;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the key kept in the nodes when there is a key extractor, to be
+     * extracted once per search instead of once per comparison.
+     */
+    private long getKey(final T data) {
+        return keyExtractor != null ? keyExtractor.applyAsLong(data) : 0L;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(final T data1, final T data2) {
+        if (OperationMetrics.SUPPORTED && metrics != null) {
+            metrics.comparisons++;
+        }
+        if (keyExtractor != null) {
+            return Long.compare(keyExtractor.applyAsLong(data1), keyExtractor.applyAsLong(data2));
+        } else if (comparator != null) {
+            return comparator.compare(data1, data2);
+        }
+        return ((Comparable<? super T>) data1).compareTo(data2);
+    }
+
+    /**
+     * Compares an element, whose key was already gotten, against the one of
+     * a node.
+     */
+    private int compare(final T data, final long key, final Node n) {
+        if (keyExtractor == null) {
+            return compare(data, n.data);
+        } else if (OperationMetrics.SUPPORTED && metrics != null) {
+            metrics.comparisons++;
+        }
+        return Long.compare(key, ((KeyedNode) n).key);
+    }
+
+    private int compare(final Node n1, final Node n2) {
+        if (keyExtractor == null) {
+            return compare(n1.data, n2.data);
+        } else if (OperationMetrics.SUPPORTED && metrics != null) {
+            metrics.comparisons++;
+        }
+        return Long.compare(((KeyedNode) n1).key, ((KeyedNode) n2).key);
+    }
+
+    private Node getTop(final Node n) {
+        Node current = n;
+        while (current.parent != null) {
+            current = current.parent;
+        }
+        return current;
+    }
+
+    private List<Node> getNodes(final Node first) {
+        final List<Node> nodes = new ArrayList<>();
+        for (Node current = first; current != null; current = current.next) {
+            nodes.add(current);
+        }
+        return nodes;
+    }
+
+    /**
+     * Joins two standalone AVL trees, all of whose elements are respectively
+     * before and after the pivot, in O(1 + |difference of heights|): the
+     * pivot takes the place of the subtree of the taller tree's spine that
+     * matches the height of the other tree.
+     *
+     * @return the root of the joined tree.
+     */
+    private Node joinTrees(final Node left, final Node pivot, final Node right) {
+        final long leftHeight = getRank(left);
+        final long rightHeight = getRank(right);
+
+        if (leftHeight > rightHeight + 1) {
+            Node parent = left;
+            while (getRank(parent.right) > rightHeight + 1) {
+                parent = parent.right;
+            }
+            attach(pivot, parent.right, right);
+            parent.right = pivot;
+            pivot.parent = parent;
+            andjustAndBalanceUpToRoot(parent);
+            return getTop(pivot);
+        } else if (rightHeight > leftHeight + 1) {
+            Node parent = right;
+            while (getRank(parent.left) > leftHeight + 1) {
+                parent = parent.left;
+            }
+            attach(pivot, left, parent.left);
+            parent.left = pivot;
+            pivot.parent = parent;
+            andjustAndBalanceUpToRoot(parent);
+            return getTop(pivot);
+        }
+
+        attach(pivot, left, right);
+        pivot.parent = null;
+        return pivot;
+    }
+
+    private void attach(final Node n, final Node left, final Node right) {
+        n.left = left;
+        n.right = right;
+        if (left != null) {
+            left.parent = n;
+        }
+        if (right != null) {
+            right.parent = n;
+        }
+        update(n);
+    }
+
+    /**
+     * Splits a standalone AVL tree into the ones with the elements less than
+     * the given one and the rest, by joining the subtrees hanging off the
+     * search path, which telescopes into O(log n).
+     */
+    private Split splitTree(final Node n, final T data, final long key) {
+        if (n == null) {
+            return new Split(null, null);
+        }
+
+        final Node left = n.left;
+        final Node right = n.right;
+        if (left != null) {
+            left.parent = null;
+        }
+        if (right != null) {
+            right.parent = null;
+        }
+        n.left = n.right = n.parent = null;
+
+        if (compare(data, key, n) <= 0) {
+            final Split split = splitTree(left, data, key);
+            return new Split(split.lower, joinTrees(split.upper, n, right));
+        }
+        final Split split = splitTree(right, data, key);
+        return new Split(joinTrees(left, n, split.lower), split.upper);
+    }
+
+    private void append(final SortedTreeList<T> upper) {
+        if (upper.head == null) {
+            return;
+        } else if (head == null) {
+            root = upper.root;
+            head = upper.head;
+            tail = upper.tail;
+        } else if (balancingPolicy == BalancingPolicy.AVL && upper.balancingPolicy == BalancingPolicy.AVL) {
+            // The first node of the upper tree has no left child, so taking
+            // it out as the pivot only rebalances its path.
+            final Node pivot = upper.head;
+            upper.removeNodeInTree(pivot);
+            root = joinTrees(root, pivot, upper.root);
+            root.parent = null;
+            tail.next = upper.head;
+            upper.head.prev = tail;
+            tail = upper.tail;
+        } else {
+            tail.next = upper.head;
+            upper.head.prev = tail;
+            final List<Node> nodes = getNodes(head);
+            rebuild(nodes.iterator(), nodes.size());
+        }
+
+        size = getSubtreeSize(root);
+        modCount++;
+        upper.root = upper.head = upper.tail = null;
+        upper.size = 0L;
+        upper.modCount++;
+    }
+
+    private static int getOrderFlag(final Comparator<?> comparator, final ToLongFunction<?> keyExtractor,
+            final ToLongFunction<?> endExtractor) {
+        if (endExtractor != null) {
+            return ORDER_BY_INTERVAL;
+        } else if (keyExtractor != null) {
+            return ORDER_BY_KEY;
+        }
+        return comparator != null ? ORDER_BY_COMPARATOR : 0;
+    }
+
+    private static void writeFully(final WritableByteChannel channel, final ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Fills the buffer from its beginning with the given number of bytes,
+     * leaving it ready to be read.
+     */
+    private static void readFully(final ReadableByteChannel channel, final ByteBuffer buffer, final int length)
+            throws IOException {
+        buffer.clear().limit(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("The channel ended before the whole list was read");
+            }
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Writes the block held by the buffer after filling in its header, and
+     * leaves the buffer ready for the next one.
+     */
+    private static void writeBlock(final WritableByteChannel channel, final ByteBuffer buffer, final int count)
+            throws IOException {
+        buffer.putInt(0, buffer.position() - BLOCK_HEADER_SIZE);
+        buffer.putInt(Integer.BYTES, count);
+        buffer.flip();
+        writeFully(channel, buffer);
+        buffer.clear().position(BLOCK_HEADER_SIZE);
+    }
+
+    /**
+     * Whether the list is full and the element would be the one evicted
+     * after inserting it (an equal element is too, as it would not make it
+     * past the one at the eviction side).
+     */
+    private boolean isRejected(final T data) {
+        if (size < capacity) {
+            return false;
+        } else if (evictionSide == EvictionSide.LAST) {
+            return compare(data, getKey(data), tail) >= 0;
+        }
+        return compare(data, getKey(data), head) <= 0;
+    }
+
+    private T evict() {
+        return popNode(evictionSide == EvictionSide.LAST ? tail : head);
+    }
+
+    private void evictExcess() {
+        while (size > capacity) {
+            evict();
+        }
+    }
+
+    private T doOffer(final T data) {
+        if (isRejected(data) || doInsert(data) == null) {
+            return data;
+        }
+        return size > capacity ? evict() : null;
+    }
+
+    private T getData(final ListNode<T> n) {
+        return n != null ? n.getData() : null;
+    }
+
+    private long startTiming() {
+        return OperationMetrics.SUPPORTED && metrics != null ? System.nanoTime() : 0L;
+    }
 
-            int comparison = data.compareTo(current.data);
-            if (comparison < 0 || (before && comparison == 0)) {
-                target = current.left;
-            } else if (comparison > 0 || (!before && comparison == 0)) {
-                target = current.right;
-            }
+    private void recordLatency(final int operation, final long start) {
+        if (OperationMetrics.SUPPORTED && metrics != null) {
+            metrics.latencies[operation].record(System.nanoTime() - start);
         }
+    }
 
-        return current;
+    private void checkForComodification(final long expectedModCount) {
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
     }
 
-    private ListNode<T> findFirstFirstOrLast(final T data, final boolean first) {
-        Node closests = findClosest(data, first);
-        if (closests != null) {
-            if (closests.data.equals(data)) {
-                return closests;
-            } else if (first && closests.next != null && closests.next.data.equals(data)) {
-                return closests.next;
-            } else if (!first && closests.prev != null && closests.prev.data.equals(data)) {
-                return closests.prev;
+    private long getPosition(final Node n) {
+        long position = getSubtreeSize(n.left);
+        for (Node current = n; current.parent != null; current = current.parent) {
+            if (current.parent.right == current) {
+                position += getSubtreeSize(current.parent.left) + current.parent.count;
             }
         }
-        return null;
+        return position;
+    }
+
+    private Node getOwnNode(final ListNode<T> listNode) {
+        if (!(listNode instanceof SortedTreeList.Node)) {
+            throw new IllegalArgumentException("The node does not belong to this list");
+        }
+
+        final Node n = (Node) listNode;
+        Node current = n;
+        while (current.parent != null) {
+            current = current.parent;
+        }
+        if (current != root) {
+            throw new IllegalArgumentException("The node does not belong to this list");
+        }
+
+        return n;
     }
 
     private void swapNodesTreePointers(final Node n1, final Node n2) {
@@ -410,6 +2162,7 @@ public class SortedTreeList<T extends Comparable<T>> {
         if (n.left == null || n.right == null) {
 
             final Node parent = n.parent;
+            final boolean fromLeft = parent != null && parent.left == n;
             if (n.left != null)  {
                 n.left.parent = parent;
                 swapChild(parent, n, n.left);
@@ -422,42 +2175,82 @@ public class SortedTreeList<T extends Comparable<T>> {
 
             n.left = n.right = n.parent = null;
             n.height = 0;
-            andjustAndBalanceUpToRoot(parent);
+            n.subtreeSize = 1L;
+            if (endExtractor != null) {
+                final IntervalNode intervalNode = (IntervalNode) n;
+                intervalNode.maxEnd = intervalNode.end;
+            }
+            if (aggregationLift != null) {
+                final AggregatedNode aggregatedNode = (AggregatedNode) n;
+                aggregatedNode.aggregate = aggregatedNode.value;
+            }
+            rebalanceAfterRemoval(parent, fromLeft);
 
         } else {
-            swapNodesInTree(n, n.next);
+            final Node successor = n.next;
+            swapNodesInTree(n, successor);
+
+            // The height (or rank) and size belong to the position in the
+            // tree, not to the node.
+            final long height = n.height;
+            n.height = successor.height;
+            successor.height = height;
+            final long subtreeSize = n.subtreeSize;
+            n.subtreeSize = successor.subtreeSize;
+            successor.subtreeSize = subtreeSize;
+
             removeNodeInTree(n);
         }
     }
 
-    private void removeNode(final Node n) {
+    private void unlinkNode(final Node n) {
         removeNodeInTree(n);
         removeNodeInList(n);
         n.data = null;
-        size--;
+        size -= n.count;
+        modCount++;
     }
 
     private T popNode(final Node n) {
         final T result = n.data;
-        removeNode(n);
+        if (n.count > 1L) {
+            addOccurrences(n, -1L);
+        } else {
+            unlinkNode(n);
+        }
         return result;
     }
 
 
+    /**
+     * Creates a node for an element, when sorting by a key one keeping it,
+     * in interval mode one keeping its end and the maximum end of its
+     * subtree too, and with an aggregator one keeping its value and the
+     * aggregate of its subtree, which the other lists do without.
+     */
+    private Node newNode(final T data, final Node parent) {
+        if (aggregationLift != null) {
+            return new AggregatedNode(data, parent);
+        } else if (endExtractor != null) {
+            return new IntervalNode(data, parent);
+        }
+        return keyExtractor != null ? new KeyedNode(data, parent) : new Node(data, parent);
+    }
+
     private class Node implements TreeNode<T>, ListNode<T> {
         T data;
         Node left, right, parent, prev, next;
         long height;
+        long subtreeSize;
+        long count;
 
         public Node(final T data, final Node parent) {
             this.data = data;
             this.parent = parent;
             left = right = prev = next = null;
             height = 0L;
-        }
-
-        public Node(final T data) {
-            this(data, null);
+            subtreeSize = 1L;
+            count = 1L;
         }
 
         @Override
@@ -491,11 +2284,398 @@ public class SortedTreeList<T extends Comparable<T>> {
         }
     }
 
+    private class KeyedNode extends Node {
+        long key;
+
+        public KeyedNode(final T data, final Node parent) {
+            super(data, parent);
+            key = getKey(data);
+        }
+    }
+
+    /**
+     * A node of a list of intervals, which are sorted by their start as the
+     * key.
+     */
+    private class IntervalNode extends KeyedNode {
+        long end, maxEnd;
+
+        public IntervalNode(final T data, final Node parent) {
+            super(data, parent);
+            end = maxEnd = endExtractor != null ? endExtractor.applyAsLong(data) : 0L;
+        }
+    }
+
+    /**
+     * A node of a list with an aggregator, which extends the interval ones
+     * so that a list of intervals can have an aggregator too (leaving the
+     * key and interval fields unused in the lists that do not need them).
+     */
+    private class AggregatedNode extends IntervalNode {
+        long value, aggregate;
+
+        public AggregatedNode(final T data, final Node parent) {
+            super(data, parent);
+            value = aggregate = aggregationLift.applyAsLong(data);
+        }
+    }
+
+    private class Split {
+        final Node lower, upper;
+
+        Split(final Node lower, final Node upper) {
+            this.lower = lower;
+            this.upper = upper;
+        }
+    }
+
+    private class NewNodeIterator implements Iterator<Node> {
+        private final Iterator<T> iterator;
+        private final boolean checkOrder;
+        private T previous;
+
+        NewNodeIterator(final Iterator<T> iterator, final boolean checkOrder) {
+            this.iterator = iterator;
+            this.checkOrder = checkOrder;
+            previous = null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public Node next() {
+            if (!iterator.hasNext()) {
+                throw new IllegalArgumentException("There are fewer elements than the given size");
+            }
+
+            final T data = iterator.next();
+            if (checkOrder && previous != null) {
+                int comparison = compare(data, previous);
+                if (comparison < 0) {
+                    throw new IllegalArgumentException("The elements are not sorted");
+                } else if (comparison == 0 && !allowRepetitions) {
+                    throw new IllegalArgumentException("The elements are repeated");
+                }
+            }
+            previous = data;
+
+            return newNode(data, null);
+        }
+    }
+
+    /**
+     * Goes in order through the nodes whose interval overlaps a range,
+     * keeping the ancestors still to be visited (like the iterator of a
+     * persistent tree) and skipping the subtrees that end before the range.
+     */
+    private class OverlapIterator implements Iterator<T> {
+        private final long from, to;
+        private final Deque<Node> ancestors;
+        private final long expectedModCount;
+        private Node next;
+
+        OverlapIterator(final long from, final long to) {
+            this.from = from;
+            this.to = to;
+            ancestors = new ArrayDeque<>();
+            expectedModCount = modCount;
+            pushLeftSpine(root);
+            next = advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            checkForComodification(expectedModCount);
+            if (next == null) {
+                return null;
+            }
+            final T data = next.data;
+            next = advance();
+            return data;
+        }
+
+        private void pushLeftSpine(final Node n) {
+            for (Node current = n; current != null && getMaxEnd(current) >= from; current = current.left) {
+                ancestors.push(current);
+            }
+        }
+
+        private Node advance() {
+            while (!ancestors.isEmpty()) {
+                final Node n = ancestors.pop();
+                if (((KeyedNode) n).key > to) {
+                    // The following ones start even later.
+                    ancestors.clear();
+                    return null;
+                }
+                pushLeftSpine(n.right);
+                if (((IntervalNode) n).end >= from) {
+                    return n;
+                }
+            }
+            return null;
+        }
+    }
+
+    private class StatsMXBean implements SortedTreeListStatsMXBean {
+        @Override
+        public long getComparisons() {
+            return getStats().getComparisons();
+        }
+
+        @Override
+        public long getRotations() {
+            return getStats().getRotations();
+        }
+
+        @Override
+        public long getRebalancingSteps() {
+            return getStats().getRebalancingSteps();
+        }
+
+        @Override
+        public long getSearches() {
+            return getStats().getSearches();
+        }
+
+        @Override
+        public long getNodesVisited() {
+            return getStats().getNodesVisited();
+        }
+
+        @Override
+        public double getAverageSearchDepth() {
+            return getStats().getAverageSearchDepth();
+        }
+
+        @Override
+        public long getRootRank() {
+            return getStats().getRootRank();
+        }
+
+        @Override
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public long getInsertLatencyMedian() {
+            return getStats().getInsertLatencies().getPercentile(50.0);
+        }
+
+        @Override
+        public long getInsertLatency99thPercentile() {
+            return getStats().getInsertLatencies().getPercentile(99.0);
+        }
+
+        @Override
+        public long getFindLatencyMedian() {
+            return getStats().getFindLatencies().getPercentile(50.0);
+        }
+
+        @Override
+        public long getFindLatency99thPercentile() {
+            return getStats().getFindLatencies().getPercentile(99.0);
+        }
+
+        @Override
+        public long getRemoveLatencyMedian() {
+            return getStats().getRemoveLatencies().getPercentile(50.0);
+        }
+
+        @Override
+        public long getRemoveLatency99thPercentile() {
+            return getStats().getRemoveLatencies().getPercentile(99.0);
+        }
+
+        @Override
+        public void resetStats() {
+            SortedTreeList.this.resetStats();
+        }
+    }
+
+    /**
+     * Creates the nodes from the blocks of a channel, reading a block when
+     * the previous one is exhausted.
+     */
+    private class BlockReader implements Iterator<Node> {
+        private final ReadableByteChannel channel;
+        private final ByteBuffer buffer;
+        private final Decoder<T> decoder;
+        private int remaining;
+
+        BlockReader(final ReadableByteChannel channel, final ByteBuffer buffer, final Decoder<T> decoder) {
+            this.channel = channel;
+            this.buffer = buffer;
+            this.decoder = decoder;
+            remaining = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public Node next() {
+            try {
+                if (remaining == 0) {
+                    readBlock();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            remaining--;
+            final Node n = newNode(decoder.decode(buffer), null);
+            if (countRepetitions) {
+                n.count = DeltaVarintCodec.getVarLong(buffer);
+                if (n.count < 1L) {
+                    throw new IllegalArgumentException("Invalid number of occurrences");
+                }
+            }
+            return n;
+        }
+
+        private void readBlock() throws IOException {
+            if (buffer.hasRemaining()) {
+                throw new StreamCorruptedException("Invalid block of a sorted list");
+            }
+
+            readFully(channel, buffer, BLOCK_HEADER_SIZE);
+            final int length = buffer.getInt();
+            final int count = buffer.getInt();
+            if (length < 0 || length > buffer.capacity() - BLOCK_HEADER_SIZE || count <= 0) {
+                throw new StreamCorruptedException("Invalid block of a sorted list");
+            }
+
+            readFully(channel, buffer, length);
+            decoder.reset();
+            remaining = count;
+        }
+    }
+
+    public class Range implements Iterable<T> {
+        private final T from, to;
+        private final boolean fromInclusive, toInclusive;
+
+        Range(final T from, final boolean fromInclusive, final T to, final boolean toInclusive) {
+            this.from = from;
+            this.fromInclusive = fromInclusive;
+            this.to = to;
+            this.toInclusive = toInclusive;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return iterator(true);
+        }
+
+        public Iterator<T> descendingIterator() {
+            return iterator(false);
+        }
+
+        private Iterator<T> iterator(final boolean ascending) {
+            final Node first = from != null ? lowerBound(from, fromInclusive) : head;
+            final Node last = to != null ? upperBound(to, toInclusive) : tail;
+
+            if (first == null || last == null || compare(first, last) > 0) {
+                return new TreeListIterator(null, null, ascending);
+            }
+            return ascending ? new TreeListIterator(first, last, true) : new TreeListIterator(last, first, false);
+        }
+    }
+
+    private class TreeListSpliterator implements Spliterator<T> {
+        private long index;
+        private final long fence;
+        private Node current;
+        private long repetition;
+
+        TreeListSpliterator(final long index, final long fence) {
+            this.index = index;
+            this.fence = fence;
+            current = null;
+            repetition = 0L;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            final long middle = (index + fence) >>> 1;
+            if (middle <= index) {
+                return null;
+            }
+
+            final TreeListSpliterator prefix = new TreeListSpliterator(index, middle);
+            prefix.current = current;
+            prefix.repetition = repetition;
+            index = middle;
+            current = null;
+            return prefix;
+        }
+
+        @Override
+        public boolean tryAdvance(final Consumer<? super T> action) {
+            if (index >= fence) {
+                return false;
+            }
+
+            if (current == null) {
+                current = select(index);
+                // Only counted nodes hold more than one position.
+                repetition = current.count > 1L ? index - countLessThan(current.data, false) : 0L;
+            }
+
+            action.accept(current.data);
+            index++;
+            if (++repetition >= current.count) {
+                repetition = 0L;
+                current = current.next;
+            }
+            return true;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            final int characteristics = ORDERED | SORTED | SIZED | SUBSIZED | NONNULL;
+            return allowRepetitions ? characteristics : characteristics | DISTINCT;
+        }
+
+        @Override
+        public Comparator<? super T> getComparator() {
+            // Null for the natural order.
+            return keyExtractor != null ? Comparator.comparingLong(keyExtractor) : comparator;
+        }
+    }
+
     private class TreeListIterator implements Iterator<T> {
         private Node current;
+        private final Node last;
+        private final boolean ascending;
+        private long repetition;
+        private Node lastReturned;
+        private long expectedModCount;
 
-        TreeListIterator(final Node current) {
+        TreeListIterator(final Node current, final Node last, final boolean ascending) {
             this.current = current;
+            this.last = last;
+            this.ascending = ascending;
+            repetition = 0L;
+            lastReturned = null;
+            expectedModCount = modCount;
         }
 
         @Override
@@ -505,12 +2685,150 @@ public class SortedTreeList<T extends Comparable<T>> {
 
         @Override
         public T next() {
+            checkForComodification(expectedModCount);
             if (current == null) {
                 return null;
             }
+            lastReturned = current;
             final T data = current.data;
-            current = current.next;
+            if (++repetition < current.count) {
+                return data;
+            }
+
+            repetition = 0L;
+            if (current == last) {
+                current = null;
+            } else {
+                current = ascending ? current.next : current.prev;
+            }
             return data;
         }
+
+        @Override
+        public void remove() {
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            checkForComodification(expectedModCount);
+
+            popNode(lastReturned);
+            if (lastReturned == current) {
+                // Still going through the occurrences of a counted node.
+                repetition--;
+            }
+            lastReturned = null;
+            expectedModCount = modCount;
+        }
+    }
+
+    private class TreeListListIterator implements ListIterator<T> {
+        // The cursor is right before the given occurrence of the node,
+        // which is null when the cursor is after the last element.
+        private Node node;
+        private long repetition;
+        private long index;
+        private Node lastReturned;
+        private boolean lastReturnedByNext;
+        private long expectedModCount;
+
+        TreeListListIterator(final Node node, final long index) {
+            this.node = node;
+            this.index = index;
+            repetition = 0L;
+            lastReturned = null;
+            expectedModCount = modCount;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return node != null;
+        }
+
+        @Override
+        public T next() {
+            checkForComodification(expectedModCount);
+            if (node == null) {
+                return null;
+            }
+
+            lastReturned = node;
+            lastReturnedByNext = true;
+            if (++repetition == node.count) {
+                node = node.next;
+                repetition = 0L;
+            }
+            index++;
+            return lastReturned.data;
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return repetition > 0L || (node != null ? node.prev != null : tail != null);
+        }
+
+        @Override
+        public T previous() {
+            checkForComodification(expectedModCount);
+            if (!hasPrevious()) {
+                return null;
+            }
+
+            if (repetition > 0L) {
+                repetition--;
+            } else {
+                node = node != null ? node.prev : tail;
+                repetition = node.count - 1;
+            }
+            lastReturned = node;
+            lastReturnedByNext = false;
+            index--;
+            return node.data;
+        }
+
+        @Override
+        public int nextIndex() {
+            return (int) Math.min(index, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public int previousIndex() {
+            return (int) Math.min(index - 1, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            checkForComodification(expectedModCount);
+
+            if (lastReturnedByNext) {
+                index--;
+                if (lastReturned == node) {
+                    repetition--;
+                }
+            } else if (lastReturned.count == 1L) {
+                node = lastReturned.next;
+                repetition = 0L;
+            } else if (repetition == lastReturned.count - 1) {
+                // The last occurrence goes away from under the cursor.
+                node = lastReturned.next;
+                repetition = 0L;
+            }
+            popNode(lastReturned);
+
+            lastReturned = null;
+            expectedModCount = modCount;
+        }
+
+        @Override
+        public void set(final T data) {
+            throw new UnsupportedOperationException("The position of an element is given by its order");
+        }
+
+        @Override
+        public void add(final T data) {
+            throw new UnsupportedOperationException("The position of an element is given by its order");
+        }
     }
 }
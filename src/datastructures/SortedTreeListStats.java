@@ -0,0 +1,97 @@
+package datastructures;
+
+/**
+ * A snapshot of the stats of a SortedTreeList, see enableStats.
+ *
+ * @author Egar Garcia
+ */
+public final class SortedTreeListStats {
+
+    private final long comparisons;
+    private final long rotations;
+    private final long rebalancingSteps;
+    private final long searches;
+    private final long nodesVisited;
+    private final long rootRank;
+    private final long size;
+    private final LatencyHistogram insertLatencies;
+    private final LatencyHistogram findLatencies;
+    private final LatencyHistogram removeLatencies;
+
+    SortedTreeListStats(final OperationMetrics metrics, final long rootRank, final long size) {
+        comparisons = metrics.comparisons;
+        rotations = metrics.rotations;
+        rebalancingSteps = metrics.rebalancingSteps;
+        searches = metrics.searches;
+        nodesVisited = metrics.nodesVisited;
+        this.rootRank = rootRank;
+        this.size = size;
+        insertLatencies = new LatencyHistogram(metrics.latencies[OperationMetrics.INSERT]);
+        findLatencies = new LatencyHistogram(metrics.latencies[OperationMetrics.FIND]);
+        removeLatencies = new LatencyHistogram(metrics.latencies[OperationMetrics.REMOVE]);
+    }
+
+    public long getComparisons() {
+        return comparisons;
+    }
+
+    public long getRotations() {
+        return rotations;
+    }
+
+    /**
+     * Gets the number of nodes whose balance was checked going up after an
+     * update.
+     */
+    public long getRebalancingSteps() {
+        return rebalancingSteps;
+    }
+
+    /**
+     * Gets the number of descents from the root, for finding or inserting.
+     */
+    public long getSearches() {
+        return searches;
+    }
+
+    public long getNodesVisited() {
+        return nodesVisited;
+    }
+
+    public double getAverageSearchDepth() {
+        return searches > 0L ? (double) nodesVisited / searches : 0.0;
+    }
+
+    /**
+     * Gets the rank of the root (-1 when empty). With AVL balancing it is the
+     * height of the tree (0 for a single node); with WAVL balancing it is an
+     * upper bound of the height, up to twice it. Getting the actual height
+     * would take walking the whole tree under WAVL.
+     */
+    public long getRootRank() {
+        return rootRank;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public LatencyHistogram getInsertLatencies() {
+        return insertLatencies;
+    }
+
+    public LatencyHistogram getFindLatencies() {
+        return findLatencies;
+    }
+
+    public LatencyHistogram getRemoveLatencies() {
+        return removeLatencies;
+    }
+
+    @Override
+    public String toString() {
+        return "SortedTreeListStats[size=" + size + ", rootRank=" + rootRank + ", comparisons=" + comparisons
+                + ", rotations=" + rotations + ", rebalancingSteps=" + rebalancingSteps
+                + ", averageSearchDepth=" + getAverageSearchDepth() + "]";
+    }
+}
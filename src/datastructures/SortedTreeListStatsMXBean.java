@@ -0,0 +1,25 @@
+package datastructures;
+
+/**
+ * The stats of a SortedTreeList as seen through JMX, see registerStatsMBean.
+ * The latencies are in nanoseconds, exact up to a factor of two.
+ *
+ * @author Egar Garcia
+ */
+public interface SortedTreeListStatsMXBean {
+    public long getComparisons();
+    public long getRotations();
+    public long getRebalancingSteps();
+    public long getSearches();
+    public long getNodesVisited();
+    public double getAverageSearchDepth();
+    public long getRootRank();
+    public long getSize();
+    public long getInsertLatencyMedian();
+    public long getInsertLatency99thPercentile();
+    public long getFindLatencyMedian();
+    public long getFindLatency99thPercentile();
+    public long getRemoveLatencyMedian();
+    public long getRemoveLatency99thPercentile();
+    public void resetStats();
+}
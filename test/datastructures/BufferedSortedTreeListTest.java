@@ -0,0 +1,140 @@
+package datastructures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+class BufferedSortedTreeListTest {
+
+    private static final int MAX_SIZE = 100;
+    private static final int BUFFER_CAPACITY = 4;
+    private static final int FLUSH_THRESHOLD = 32;
+
+    private Random random = new Random();
+
+
+    @Test
+    void testInsert() {
+        final BufferedSortedTreeList<Integer> bufferedSortedTreeList = new BufferedSortedTreeList<>(true, false,
+                BalancingPolicy.AVL, BUFFER_CAPACITY, FLUSH_THRESHOLD);
+
+        final List<Integer> testSample = getSample(1);
+        for (Integer element : testSample) {
+            bufferedSortedTreeList.insert(element);
+            Assert.assertTrue(bufferedSortedTreeList.getPendingSize() < FLUSH_THRESHOLD);
+        }
+        Collections.sort(testSample);
+
+        Assert.assertEquals(testSample, getList(bufferedSortedTreeList));
+        Assert.assertEquals(testSample.size(), bufferedSortedTreeList.size());
+        Assert.assertEquals(testSample.get(0), bufferedSortedTreeList.first());
+        Assert.assertEquals(testSample.get(testSample.size() - 1), bufferedSortedTreeList.last());
+
+        bufferedSortedTreeList.flush();
+        Assert.assertEquals(0, bufferedSortedTreeList.getPendingSize());
+        Assert.assertEquals(testSample, getList(bufferedSortedTreeList));
+    }
+
+    @Test
+    void testInsert_withNoRepetitionsAllowed() {
+        final BufferedSortedTreeList<Integer> bufferedSortedTreeList = new BufferedSortedTreeList<>(false, false,
+                BalancingPolicy.WAVL, BUFFER_CAPACITY, FLUSH_THRESHOLD);
+
+        final List<Integer> testSample = getSample(1);
+        for (Integer element : testSample) {
+            bufferedSortedTreeList.insert(element);
+        }
+
+        final List<Integer> expected = new ArrayList<>(new TreeSet<>(testSample));
+        Assert.assertEquals(expected, getList(bufferedSortedTreeList));
+        Assert.assertEquals(expected.size(), bufferedSortedTreeList.size());
+    }
+
+    @Test
+    void testFind_whenInTreeOrInBuffer() {
+        final BufferedSortedTreeList<Integer> bufferedSortedTreeList = new BufferedSortedTreeList<>(true, true,
+                BalancingPolicy.AVL, BUFFER_CAPACITY, FLUSH_THRESHOLD);
+
+        bufferedSortedTreeList.insertAll(Arrays.asList(5, 1, 3));
+        bufferedSortedTreeList.insert(4);
+        bufferedSortedTreeList.insert(3);
+
+        Assert.assertEquals(2, bufferedSortedTreeList.getPendingSize());
+        Assert.assertTrue(bufferedSortedTreeList.contains(1));
+        Assert.assertEquals(Integer.valueOf(4), bufferedSortedTreeList.find(4));
+        Assert.assertFalse(bufferedSortedTreeList.contains(2));
+        Assert.assertNull(bufferedSortedTreeList.find(2));
+        Assert.assertEquals(Arrays.asList(1, 3, 3, 4, 5), getList(bufferedSortedTreeList));
+
+        bufferedSortedTreeList.remove(3);
+        bufferedSortedTreeList.remove(4);
+        Assert.assertEquals(0, bufferedSortedTreeList.getPendingSize());
+        Assert.assertEquals(Arrays.asList(1, 3, 5), getList(bufferedSortedTreeList));
+    }
+
+    @Test
+    void testPopFirstAndPopLast() {
+        final BufferedSortedTreeList<Integer> bufferedSortedTreeList = new BufferedSortedTreeList<>(true, false,
+                BalancingPolicy.AVL, BUFFER_CAPACITY, FLUSH_THRESHOLD);
+
+        final List<Integer> testSample = getSample(2);
+        for (Integer element : testSample) {
+            bufferedSortedTreeList.insert(element);
+        }
+        Collections.sort(testSample);
+
+        int from = 0;
+        int to = testSample.size() - 1;
+        while (from <= to) {
+            if (random.nextBoolean()) {
+                Assert.assertEquals(testSample.get(from++), bufferedSortedTreeList.popFirst());
+            } else {
+                Assert.assertEquals(testSample.get(to--), bufferedSortedTreeList.popLast());
+            }
+        }
+
+        Assert.assertEquals(0, bufferedSortedTreeList.size());
+        Assert.assertNull(bufferedSortedTreeList.popFirst());
+        Assert.assertNull(bufferedSortedTreeList.first());
+    }
+
+    @Test
+    void testIterator_whenModified() {
+        final BufferedSortedTreeList<Integer> bufferedSortedTreeList = new BufferedSortedTreeList<>(true, false,
+                BalancingPolicy.AVL, BUFFER_CAPACITY, FLUSH_THRESHOLD);
+        bufferedSortedTreeList.insert(1);
+        bufferedSortedTreeList.insert(2);
+
+        final Iterator<Integer> iterator = bufferedSortedTreeList.iterator();
+        iterator.next();
+        bufferedSortedTreeList.insert(3);
+
+        Assert.assertThrows(ConcurrentModificationException.class, iterator::next);
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> new BufferedSortedTreeList<Integer>(true, false, BalancingPolicy.AVL, 0, FLUSH_THRESHOLD));
+    }
+
+
+    private List<Integer> getSample(final int minSize) {
+        final int size = minSize + random.nextInt(MAX_SIZE);
+        final List<Integer> sample = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            sample.add(random.nextInt(Math.max(1, size / 2)));
+        }
+        return sample;
+    }
+
+    private <T extends Comparable<T>> List<T> getList(final BufferedSortedTreeList<T> bufferedSortedTreeList) {
+        final List<T> list = new ArrayList<>();
+        bufferedSortedTreeList.forEach(list::add);
+        return list;
+    }
+}
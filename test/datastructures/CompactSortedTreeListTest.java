@@ -0,0 +1,213 @@
+package datastructures;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+class CompactSortedTreeListTest {
+
+    private static final int MAX_SIZE = 100;
+
+    private Random random = new Random();
+
+
+    @Test
+    void testInsert() {
+        final CompactSortedTreeList<Integer> compactSortedTreeList = new CompactSortedTreeList<>();
+
+        final List<Integer> testSample = getSample(1, false);
+        insertElements(testSample, compactSortedTreeList);
+        Collections.sort(testSample);
+
+        Assert.assertEquals(testSample, getListFromIterator(compactSortedTreeList.iterator()));
+        Assert.assertEquals(testSample.size(), compactSortedTreeList.size());
+        Assert.assertTrue(isBalanced(compactSortedTreeList.getRoot()));
+    }
+
+    @Test
+    void testInsert_withNoRepetitionsAllowed() {
+        final CompactSortedTreeList<Integer> compactSortedTreeList = new CompactSortedTreeList<>(false);
+
+        final List<Integer> testSample = getSample(2, true);
+        insertElements(testSample, compactSortedTreeList);
+        final List<Integer> uniqueTestSample = new ArrayList<>(new TreeSet<>(testSample));
+
+        Assert.assertEquals(uniqueTestSample, getListFromIterator(compactSortedTreeList.iterator()));
+        Assert.assertTrue(isBalanced(compactSortedTreeList.getRoot()));
+    }
+
+    @Test
+    void testInsert_withRepetitionsAllowed() {
+        final CompactSortedTreeList<Integer> compactSortedTreeList = new CompactSortedTreeList<>(true, 0);
+
+        final List<Integer> testSample = getSample(2, true);
+        insertElements(testSample, compactSortedTreeList);
+        Collections.sort(testSample);
+
+        Assert.assertEquals(testSample, getListFromIterator(compactSortedTreeList.iterator()));
+        Assert.assertTrue(isBalanced(compactSortedTreeList.getRoot()));
+    }
+
+    @Test
+    void testInsert_inAscendingOrder() {
+        final CompactSortedTreeList<Integer> compactSortedTreeList = new CompactSortedTreeList<>();
+
+        for (int i = 0; i < MAX_SIZE; i++) {
+            compactSortedTreeList.insert(i);
+        }
+
+        Assert.assertEquals(MAX_SIZE, compactSortedTreeList.size());
+        Assert.assertTrue(isBalanced(compactSortedTreeList.getRoot()));
+    }
+
+    @Test
+    void testFind() {
+        final CompactSortedTreeList<Integer> compactSortedTreeList = new CompactSortedTreeList<>(true);
+
+        final List<Integer> testSample = getSample(1, true);
+        insertElements(testSample, compactSortedTreeList);
+
+        for (Integer element : testSample) {
+            Assert.assertTrue(compactSortedTreeList.contains(element));
+            Assert.assertEquals(element, compactSortedTreeList.find(element).getData());
+
+            final ListNode<Integer> first = compactSortedTreeList.findFirst(element);
+            final ListNode<Integer> last = compactSortedTreeList.findLast(element);
+            Assert.assertEquals(element, first.getData());
+            Assert.assertEquals(element, last.getData());
+            Assert.assertTrue(first.getPrev() == null || first.getPrev().getData() < element);
+            Assert.assertTrue(last.getNext() == null || last.getNext().getData() > element);
+        }
+        Assert.assertFalse(compactSortedTreeList.contains(-1));
+        Assert.assertNull(compactSortedTreeList.find(-1));
+    }
+
+    @Test
+    void testRemove() {
+        final CompactSortedTreeList<Integer> compactSortedTreeList = new CompactSortedTreeList<>(true);
+
+        final List<Integer> testSample = getSample(1, true);
+        insertElements(testSample, compactSortedTreeList);
+        final List<Integer> remaining = new ArrayList<>(testSample);
+        Collections.shuffle(testSample, random);
+
+        for (Integer element : testSample.subList(0, testSample.size() / 2)) {
+            compactSortedTreeList.remove(element);
+            remaining.remove(element);
+            Assert.assertTrue(isBalanced(compactSortedTreeList.getRoot()));
+        }
+        Collections.sort(remaining);
+
+        Assert.assertEquals(remaining, getListFromIterator(compactSortedTreeList.iterator()));
+        Assert.assertEquals(remaining.size(), compactSortedTreeList.size());
+    }
+
+    @Test
+    void testPopFirstAndPopLast() {
+        final CompactSortedTreeList<Integer> compactSortedTreeList = new CompactSortedTreeList<>(true);
+
+        final List<Integer> testSample = getSample(2, true);
+        insertElements(testSample, compactSortedTreeList);
+        Collections.sort(testSample);
+
+        int from = 0;
+        int to = testSample.size() - 1;
+        while (from <= to) {
+            if (random.nextBoolean()) {
+                Assert.assertEquals(testSample.get(from++), compactSortedTreeList.popFirst());
+            } else {
+                Assert.assertEquals(testSample.get(to--), compactSortedTreeList.popLast());
+            }
+            Assert.assertTrue(isBalanced(compactSortedTreeList.getRoot()));
+        }
+
+        Assert.assertEquals(0, compactSortedTreeList.size());
+        Assert.assertNull(compactSortedTreeList.popFirst());
+        Assert.assertNull(compactSortedTreeList.getRoot());
+    }
+
+    @Test
+    void testInsert_afterRemovalsReusesSlots() {
+        final CompactSortedTreeList<Integer> compactSortedTreeList = new CompactSortedTreeList<>(true);
+        final List<Integer> expected = new ArrayList<>();
+
+        for (int round = 0; round < 10; round++) {
+            for (Integer element : getSample(1, true)) {
+                compactSortedTreeList.insert(element);
+                expected.add(element);
+            }
+            Collections.shuffle(expected, random);
+            for (Integer element : new ArrayList<>(expected.subList(0, expected.size() / 2))) {
+                compactSortedTreeList.remove(element);
+                expected.remove(element);
+            }
+            compactSortedTreeList.trimToSize();
+        }
+        Collections.sort(expected);
+
+        Assert.assertEquals(expected, getListFromIterator(compactSortedTreeList.iterator()));
+        Assert.assertTrue(isBalanced(compactSortedTreeList.getRoot()));
+    }
+
+
+    private List<Integer> getSample(final int minSize, final boolean withRepetitions) {
+        final int size = minSize + random.nextInt(MAX_SIZE);
+        final List<Integer> sample = new ArrayList<>(size);
+
+        if (withRepetitions) {
+            for (int i = 0; i < size; i++) {
+                sample.add(random.nextInt(Math.max(1, size / 2)));
+            }
+        } else {
+            for (int i = 0; i < size; i++) {
+                sample.add(i);
+            }
+            Collections.shuffle(sample, random);
+        }
+
+        return sample;
+    }
+
+    private <T extends Comparable<T>> void insertElements(
+            final List<T> elements, final CompactSortedTreeList<T> compactSortedTreeList) {
+        for (T element : elements) {
+            compactSortedTreeList.insert(element);
+        }
+    }
+
+    private <T> List<T> getListFromIterator(final Iterator<T> iterator) {
+        final List<T> list = new ArrayList<>();
+        while (iterator.hasNext()) {
+            list.add(iterator.next());
+        }
+        return list;
+    }
+
+    private <T> long getHeight(final TreeNode<T> root) {
+        if (root == null) {
+            return -1;
+        }
+
+        return 1 + Math.max(getHeight(root.getLeft()), getHeight(root.getRight()));
+    }
+
+    private <T> boolean isBalanced(final TreeNode<T> root) {
+        if (root == null) {
+            return true;
+        }
+
+        final TreeNode<T> left = root.getLeft();
+        final TreeNode<T> right = root.getRight();
+        return (left == null || left.getParent().getData() == root.getData()) &&
+               (right == null || right.getParent().getData() == root.getData()) &&
+               isBalanced(left) &&
+               isBalanced(right) &&
+               Math.abs(getHeight(left) - getHeight(right)) < 2;
+    }
+}
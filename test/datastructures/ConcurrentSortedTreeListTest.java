@@ -0,0 +1,153 @@
+package datastructures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+class ConcurrentSortedTreeListTest {
+
+    private static final int MAX_SIZE = 100;
+    private static final int THREADS = 4;
+
+    private Random random = new Random();
+
+
+    @Test
+    void testInsert() {
+        final ConcurrentSortedTreeList<Integer> concurrentSortedTreeList = new ConcurrentSortedTreeList<>(true);
+
+        final List<Integer> testSample = getSample(1);
+        for (Integer element : testSample) {
+            concurrentSortedTreeList.insert(element);
+        }
+        Collections.sort(testSample);
+
+        Assert.assertEquals(testSample, getList(concurrentSortedTreeList));
+        Assert.assertEquals(testSample.size(), concurrentSortedTreeList.size());
+        Assert.assertEquals(testSample.get(0), concurrentSortedTreeList.first());
+        Assert.assertEquals(testSample.get(testSample.size() - 1), concurrentSortedTreeList.last());
+    }
+
+    @Test
+    void testFind() {
+        final ConcurrentSortedTreeList<Integer> concurrentSortedTreeList = new ConcurrentSortedTreeList<>();
+
+        concurrentSortedTreeList.insertAll(Arrays.asList(5, 1, 3));
+
+        Assert.assertTrue(concurrentSortedTreeList.contains(3));
+        Assert.assertEquals(Integer.valueOf(3), concurrentSortedTreeList.find(3));
+        Assert.assertFalse(concurrentSortedTreeList.contains(2));
+        Assert.assertNull(concurrentSortedTreeList.find(2));
+        Assert.assertEquals(Integer.valueOf(5), concurrentSortedTreeList.get(2));
+        Assert.assertEquals(1, concurrentSortedTreeList.rank(3));
+    }
+
+    @Test
+    void testPopFirstAndPopLast() {
+        final ConcurrentSortedTreeList<Integer> concurrentSortedTreeList = new ConcurrentSortedTreeList<>();
+
+        concurrentSortedTreeList.insertAll(Arrays.asList(5, 1, 3));
+
+        Assert.assertEquals(Integer.valueOf(1), concurrentSortedTreeList.popFirst());
+        Assert.assertEquals(Integer.valueOf(5), concurrentSortedTreeList.popLast());
+        concurrentSortedTreeList.remove(3);
+        Assert.assertEquals(0, concurrentSortedTreeList.size());
+        Assert.assertNull(concurrentSortedTreeList.popFirst());
+    }
+
+    @Test
+    void testRange_withRepetitionsSpanningChunks() {
+        final ConcurrentSortedTreeList<Integer> concurrentSortedTreeList = new ConcurrentSortedTreeList<>(true);
+
+        final List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 10 * MAX_SIZE; i++) {
+            final Integer element = random.nextInt(10);
+            concurrentSortedTreeList.insert(element);
+            if (element >= 3 && element < 7) {
+                expected.add(element);
+            }
+        }
+        Collections.sort(expected);
+
+        final List<Integer> result = new ArrayList<>();
+        concurrentSortedTreeList.range(3, true, 7, false).forEach(result::add);
+
+        Assert.assertEquals(expected, result);
+    }
+
+    @Test
+    void testInsert_concurrently() throws Exception {
+        final ConcurrentSortedTreeList<Integer> concurrentSortedTreeList = new ConcurrentSortedTreeList<>();
+        final int elementsPerThread = 100 * MAX_SIZE;
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        final ExecutorService executor = Executors.newFixedThreadPool(2 * THREADS);
+
+        try {
+            final List<Future<?>> readers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                readers.add(executor.submit(() -> {
+                    while (writing.get()) {
+                        // Elements are only inserted, so every iteration must be sorted.
+                        Integer previous = null;
+                        for (Integer element : concurrentSortedTreeList) {
+                            Assert.assertTrue(previous == null || previous < element);
+                            Assert.assertTrue(concurrentSortedTreeList.contains(element));
+                            previous = element;
+                        }
+                    }
+                }));
+            }
+
+            final List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                final int offset = t;
+                writers.add(executor.submit(() -> {
+                    for (int i = 0; i < elementsPerThread; i++) {
+                        concurrentSortedTreeList.insert(i * THREADS + offset);
+                    }
+                }));
+            }
+
+            for (Future<?> writer : writers) {
+                writer.get(1, TimeUnit.MINUTES);
+            }
+            writing.set(false);
+            for (Future<?> reader : readers) {
+                reader.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assert.assertEquals(THREADS * elementsPerThread, concurrentSortedTreeList.size());
+        for (int i = 0; i < THREADS * elementsPerThread; i++) {
+            Assert.assertEquals(Integer.valueOf(i), concurrentSortedTreeList.get(i));
+        }
+    }
+
+
+    private List<Integer> getSample(final int minSize) {
+        final int size = minSize + random.nextInt(MAX_SIZE);
+        final List<Integer> sample = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            sample.add(random.nextInt(Math.max(1, size / 2)));
+        }
+        return sample;
+    }
+
+    private <T extends Comparable<T>> List<T> getList(final ConcurrentSortedTreeList<T> concurrentSortedTreeList) {
+        final List<T> list = new ArrayList<>();
+        concurrentSortedTreeList.forEach(list::add);
+        return list;
+    }
+}
@@ -0,0 +1,72 @@
+package datastructures;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+class DeltaVarintCodecTest {
+
+    @Test
+    void testVarLong() {
+        final ByteBuffer buffer = ByteBuffer.allocate(64);
+        final long[] values = {0L, 127L, 128L, Long.MAX_VALUE, -1L};
+        final int[] lengths = {1, 1, 2, 9, 10};
+
+        for (int i = 0; i < values.length; i++) {
+            buffer.clear();
+            DeltaVarintCodec.putVarLong(buffer, values[i]);
+            Assert.assertEquals(lengths[i], buffer.position());
+            buffer.flip();
+            Assert.assertEquals(values[i], DeltaVarintCodec.getVarLong(buffer));
+        }
+    }
+
+    @Test
+    void testVarLong_whenMalformed() {
+        final ByteBuffer buffer = ByteBuffer.allocate(16);
+        for (int i = 0; i < 11; i++) {
+            buffer.put((byte) 0x80);
+        }
+        buffer.flip();
+
+        Assert.assertThrows(IllegalArgumentException.class, () -> DeltaVarintCodec.getVarLong(buffer));
+    }
+
+    @Test
+    void testEncodeAndDecode() {
+        final DeltaVarintCodec<Long> codec = DeltaVarintCodec.ofLongs();
+        final List<Long> values = Arrays.asList(Long.MIN_VALUE, -5L, -5L, 0L, 3L, 1000L, Long.MAX_VALUE, 7L);
+        final ByteBuffer buffer = ByteBuffer.allocate(128);
+
+        for (Long value : values) {
+            codec.encode(value, buffer);
+        }
+        buffer.flip();
+        codec.reset();
+        final List<Long> result = new ArrayList<>();
+        while (buffer.hasRemaining()) {
+            result.add(codec.decode(buffer));
+        }
+
+        Assert.assertEquals(values, result);
+    }
+
+    @Test
+    void testEncode_withCloseSortedKeys() {
+        final DeltaVarintCodec<Integer> codec = DeltaVarintCodec.ofIntegers();
+        final ByteBuffer buffer = ByteBuffer.allocate(1024);
+
+        codec.encode(1000000, buffer);
+        final int firstLength = buffer.position();
+        for (int i = 1; i <= 100; i++) {
+            codec.encode(1000000 + i * 100, buffer);
+        }
+
+        Assert.assertEquals(3, firstLength);
+        Assert.assertEquals(firstLength + 100, buffer.position());
+    }
+}
@@ -0,0 +1,34 @@
+package datastructures;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+    @Test
+    void testGetPercentile() {
+        final LatencyHistogram latencyHistogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            latencyHistogram.record(100L);
+        }
+        latencyHistogram.record(5000L);
+
+        Assert.assertEquals(100, latencyHistogram.getCount());
+        Assert.assertEquals(127L, latencyHistogram.getPercentile(50.0));
+        Assert.assertEquals(127L, latencyHistogram.getPercentile(99.0));
+        Assert.assertEquals(8191L, latencyHistogram.getPercentile(100.0));
+        Assert.assertEquals(99L, latencyHistogram.getBuckets()[7]);
+    }
+
+    @Test
+    void testGetPercentile_whenEmptyOrOutOfRange() {
+        final LatencyHistogram latencyHistogram = new LatencyHistogram();
+        latencyHistogram.record(-1L);
+        latencyHistogram.record(Long.MAX_VALUE);
+
+        Assert.assertEquals(0L, latencyHistogram.getPercentile(50.0));
+        Assert.assertEquals(Long.MAX_VALUE, latencyHistogram.getPercentile(100.0));
+        Assert.assertEquals(0L, new LatencyHistogram().getPercentile(99.0));
+        Assert.assertThrows(IllegalArgumentException.class, () -> latencyHistogram.getPercentile(101.0));
+    }
+}
@@ -0,0 +1,183 @@
+package datastructures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+class LockFreeSortedListTest {
+
+    private static final int MAX_SIZE = 100;
+    private static final int THREADS = 4;
+
+    private Random random = new Random();
+
+
+    @Test
+    void testInsert() {
+        final LockFreeSortedList<Integer> lockFreeSortedList = new LockFreeSortedList<>(true);
+
+        final List<Integer> testSample = getSample(1);
+        for (Integer element : testSample) {
+            Assert.assertNotNull(lockFreeSortedList.insert(element));
+        }
+        Collections.sort(testSample);
+
+        Assert.assertEquals(testSample, getList(lockFreeSortedList));
+        Assert.assertEquals(testSample.size(), lockFreeSortedList.size());
+        Assert.assertEquals(testSample.get(0), lockFreeSortedList.first());
+        Assert.assertEquals(testSample.get(testSample.size() - 1), lockFreeSortedList.last());
+    }
+
+    @Test
+    void testInsert_withNoRepetitionsAllowed() {
+        final LockFreeSortedList<Integer> lockFreeSortedList = new LockFreeSortedList<>(false);
+
+        Assert.assertNotNull(lockFreeSortedList.insert(3));
+        Assert.assertNotNull(lockFreeSortedList.insert(1));
+        Assert.assertNull(lockFreeSortedList.insert(3));
+
+        Assert.assertEquals(2, lockFreeSortedList.size());
+        Assert.assertEquals(Arrays.asList(1, 3), getList(lockFreeSortedList));
+    }
+
+    @Test
+    void testFindFirstAndFindLast() {
+        final LockFreeSortedList<Integer> lockFreeSortedList = new LockFreeSortedList<>(true);
+
+        final List<Integer> testSample = getSample(1);
+        for (Integer element : testSample) {
+            lockFreeSortedList.insert(element);
+        }
+
+        for (Integer element : testSample) {
+            Assert.assertTrue(lockFreeSortedList.contains(element));
+
+            final ListNode<Integer> first = lockFreeSortedList.findFirst(element);
+            final ListNode<Integer> last = lockFreeSortedList.findLast(element);
+            Assert.assertEquals(element, first.getData());
+            Assert.assertEquals(element, last.getData());
+            Assert.assertTrue(first.getPrev() == null || first.getPrev().getData() < element);
+            Assert.assertTrue(last.getNext() == null || last.getNext().getData() > element);
+        }
+        Assert.assertFalse(lockFreeSortedList.contains(-1));
+        Assert.assertNull(lockFreeSortedList.findLast(-1));
+    }
+
+    @Test
+    void testPopFirstAndPopLast() {
+        final LockFreeSortedList<Integer> lockFreeSortedList = new LockFreeSortedList<>(true);
+
+        final List<Integer> testSample = getSample(2);
+        for (Integer element : testSample) {
+            lockFreeSortedList.insert(element);
+        }
+        Collections.sort(testSample);
+
+        int from = 0;
+        int to = testSample.size() - 1;
+        while (from <= to) {
+            if (random.nextBoolean()) {
+                Assert.assertEquals(testSample.get(from++), lockFreeSortedList.popFirst());
+            } else {
+                Assert.assertEquals(testSample.get(to--), lockFreeSortedList.popLast());
+            }
+        }
+
+        Assert.assertEquals(0, lockFreeSortedList.size());
+        Assert.assertNull(lockFreeSortedList.popFirst());
+        Assert.assertNull(lockFreeSortedList.getHead());
+    }
+
+    @Test
+    void testRemove() {
+        final LockFreeSortedList<Integer> lockFreeSortedList = new LockFreeSortedList<>(true);
+
+        final List<Integer> testSample = getSample(1);
+        for (Integer element : testSample) {
+            lockFreeSortedList.insert(element);
+        }
+        final List<Integer> remaining = new ArrayList<>(testSample);
+
+        for (Integer element : testSample.subList(0, testSample.size() / 2)) {
+            Assert.assertTrue(lockFreeSortedList.remove(element));
+            remaining.remove(element);
+        }
+        Collections.sort(remaining);
+
+        Assert.assertEquals(remaining, getList(lockFreeSortedList));
+        Assert.assertFalse(lockFreeSortedList.remove(-1));
+    }
+
+    @Test
+    void testPopFirst_withConcurrentProducersAndConsumers() throws Exception {
+        final LockFreeSortedList<Integer> lockFreeSortedList = new LockFreeSortedList<>(true);
+        final int elementsPerThread = 100 * MAX_SIZE;
+        final AtomicInteger producing = new AtomicInteger(THREADS);
+        final ConcurrentLinkedQueue<Integer> popped = new ConcurrentLinkedQueue<>();
+        final ExecutorService executor = Executors.newFixedThreadPool(2 * THREADS);
+
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                final int offset = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < elementsPerThread; i++) {
+                        lockFreeSortedList.insert((i * THREADS + offset) % (elementsPerThread / 2));
+                    }
+                    producing.decrementAndGet();
+                }));
+                futures.add(executor.submit(() -> {
+                    while (producing.get() > 0 || lockFreeSortedList.size() > 0) {
+                        final Integer element = lockFreeSortedList.popFirst();
+                        if (element != null) {
+                            popped.add(element);
+                        }
+                    }
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Every inserted element is popped exactly once.
+        final int[] occurrences = new int[elementsPerThread / 2];
+        for (Integer element : popped) {
+            occurrences[element]++;
+        }
+        for (int occurrence : occurrences) {
+            Assert.assertEquals(2 * THREADS, occurrence);
+        }
+        Assert.assertNull(lockFreeSortedList.first());
+    }
+
+
+    private List<Integer> getSample(final int minSize) {
+        final int size = minSize + random.nextInt(MAX_SIZE);
+        final List<Integer> sample = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            sample.add(random.nextInt(Math.max(1, size / 2)));
+        }
+        return sample;
+    }
+
+    private <T extends Comparable<T>> List<T> getList(final LockFreeSortedList<T> lockFreeSortedList) {
+        final List<T> list = new ArrayList<>();
+        lockFreeSortedList.forEach(list::add);
+        return list;
+    }
+}
@@ -0,0 +1,214 @@
+package datastructures;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MappedSortedLongIndexTest {
+
+    private static final int MAX_SIZE = 100;
+
+    private Random random = new Random();
+    private Path file;
+
+
+    @BeforeEach
+    void createFile() throws IOException {
+        file = Files.createTempFile("index", ".bin");
+    }
+
+    @AfterEach
+    void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    void testInsert() throws IOException {
+        try (MappedSortedLongIndex index = new MappedSortedLongIndex(file, true)) {
+            final List<Long> testSample = getSample(100 * MAX_SIZE);
+            for (Long element : testSample) {
+                index.insert(element);
+            }
+            Collections.sort(testSample);
+
+            Assert.assertEquals(testSample, getList(index));
+            Assert.assertEquals(testSample.size(), index.size());
+            Assert.assertEquals((long) testSample.get(0), index.first());
+            Assert.assertEquals((long) testSample.get(testSample.size() - 1), index.last());
+        }
+    }
+
+    @Test
+    void testInsert_withNoRepetitionsAllowed() throws IOException {
+        try (MappedSortedLongIndex index = new MappedSortedLongIndex(file, false)) {
+            final List<Long> testSample = getSample(100 * MAX_SIZE);
+            for (Long element : testSample) {
+                index.insert(element);
+            }
+
+            Assert.assertEquals(new ArrayList<>(new TreeSet<>(testSample)), getList(index));
+        }
+    }
+
+    @Test
+    void testInsert_inAscendingOrderAcrossRegions() throws IOException {
+        try (MappedSortedLongIndex index = new MappedSortedLongIndex(file)) {
+            final int size = 6000 * MAX_SIZE;
+            for (long i = 0; i < size; i++) {
+                index.insert(2 * i);
+            }
+
+            Assert.assertEquals(size, index.size());
+            final PrimitiveIterator.OfLong iterator = index.iterator();
+            for (long i = 0; i < size; i++) {
+                Assert.assertEquals(2 * i, iterator.nextLong());
+            }
+            Assert.assertFalse(iterator.hasNext());
+            Assert.assertTrue(index.contains(2 * (size - 1)));
+            Assert.assertFalse(index.contains(2 * (size - 1) - 1));
+        }
+    }
+
+    @Test
+    void testFindFirstAndFindLast() throws IOException {
+        try (MappedSortedLongIndex index = new MappedSortedLongIndex(file, true)) {
+            // The repetitions of 5 span several pages.
+            for (int i = 0; i < 20 * MAX_SIZE; i++) {
+                index.insert(i % 2 == 0 ? 5L : random.nextInt(10));
+            }
+
+            for (long element = 0; element < 10; element++) {
+                final LongListNode first = index.findFirst(element);
+                final LongListNode last = index.findLast(element);
+                if (first == null) {
+                    Assert.assertNull(last);
+                    Assert.assertFalse(index.contains(element));
+                    continue;
+                }
+                Assert.assertEquals(element, first.getData());
+                Assert.assertEquals(element, last.getData());
+                Assert.assertTrue(first.getPrev() == null || first.getPrev().getData() < element);
+                Assert.assertTrue(last.getNext() == null || last.getNext().getData() > element);
+            }
+            Assert.assertNull(index.findFirst(-1L));
+            Assert.assertNull(index.findLast(10L));
+        }
+    }
+
+    @Test
+    void testPopFirstAndPopLast() throws IOException {
+        try (MappedSortedLongIndex index = new MappedSortedLongIndex(file, true)) {
+            final List<Long> testSample = getSample(10 * MAX_SIZE);
+            for (Long element : testSample) {
+                index.insert(element);
+            }
+            Collections.sort(testSample);
+
+            int from = 0;
+            int to = testSample.size() - 1;
+            while (from <= to) {
+                if (random.nextBoolean()) {
+                    Assert.assertEquals((long) testSample.get(from++), index.popFirst());
+                } else {
+                    Assert.assertEquals((long) testSample.get(to--), index.popLast());
+                }
+            }
+
+            Assert.assertEquals(0, index.size());
+            Assert.assertThrows(NoSuchElementException.class, index::popFirst);
+            Assert.assertFalse(index.iterator().hasNext());
+        }
+    }
+
+    @Test
+    void testRemove() throws IOException {
+        try (MappedSortedLongIndex index = new MappedSortedLongIndex(file, true)) {
+            final List<Long> testSample = getSample(10 * MAX_SIZE);
+            for (Long element : testSample) {
+                index.insert(element);
+            }
+            final List<Long> remaining = new ArrayList<>(testSample);
+
+            for (Long element : testSample.subList(0, testSample.size() / 2)) {
+                index.remove(element);
+                remaining.remove(element);
+            }
+            index.remove(-1L);
+            Collections.sort(remaining);
+
+            Assert.assertEquals(remaining, getList(index));
+            Assert.assertEquals(remaining.size(), index.size());
+        }
+    }
+
+    @Test
+    void testReopen() throws IOException {
+        final List<Long> testSample = getSample(10 * MAX_SIZE);
+        try (MappedSortedLongIndex index = new MappedSortedLongIndex(file, true)) {
+            for (Long element : testSample) {
+                index.insert(element);
+            }
+            for (int i = 0; i < testSample.size() / 2; i++) {
+                index.popFirst();
+            }
+        }
+        Collections.sort(testSample);
+        final List<Long> expected = new ArrayList<>(testSample.subList(testSample.size() / 2, testSample.size()));
+
+        try (MappedSortedLongIndex index = new MappedSortedLongIndex(file, true)) {
+            Assert.assertEquals(expected, getList(index));
+
+            for (Long element : testSample) {
+                index.insert(element);
+                expected.add(element);
+            }
+            Collections.sort(expected);
+            Assert.assertEquals(expected, getList(index));
+        }
+
+        Assert.assertThrows(IllegalArgumentException.class, () -> new MappedSortedLongIndex(file, false));
+    }
+
+    @Test
+    void testIterator_whenModified() throws IOException {
+        try (MappedSortedLongIndex index = new MappedSortedLongIndex(file)) {
+            index.insert(1L);
+            index.insert(2L);
+
+            final PrimitiveIterator.OfLong iterator = index.iterator();
+            iterator.nextLong();
+            index.insert(3L);
+
+            Assert.assertThrows(ConcurrentModificationException.class, iterator::nextLong);
+        }
+    }
+
+
+    private List<Long> getSample(final int minSize) {
+        final int size = minSize + random.nextInt(MAX_SIZE);
+        final List<Long> sample = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            sample.add((long) random.nextInt(Math.max(1, size / 2)));
+        }
+        return sample;
+    }
+
+    private List<Long> getList(final MappedSortedLongIndex index) {
+        final List<Long> list = new ArrayList<>();
+        index.iterator().forEachRemaining((long element) -> list.add(element));
+        return list;
+    }
+}
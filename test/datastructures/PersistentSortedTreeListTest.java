@@ -0,0 +1,164 @@
+package datastructures;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+class PersistentSortedTreeListTest {
+
+    private static final int MAX_SIZE = 100;
+
+    private Random random = new Random();
+
+
+    @Test
+    void testInsert() {
+        final PersistentSortedTreeList<Integer> persistentSortedTreeList = new PersistentSortedTreeList<>(true);
+
+        final List<Integer> testSample = getSample(1);
+        for (Integer element : testSample) {
+            persistentSortedTreeList.insert(element);
+        }
+        Collections.sort(testSample);
+
+        Assert.assertEquals(testSample, getList(persistentSortedTreeList));
+        Assert.assertEquals(testSample.size(), persistentSortedTreeList.size());
+        Assert.assertEquals(testSample.get(0), persistentSortedTreeList.first());
+        Assert.assertEquals(testSample.get(testSample.size() - 1), persistentSortedTreeList.last());
+        for (int i = 0; i < testSample.size(); i++) {
+            Assert.assertEquals(testSample.get(i), persistentSortedTreeList.get(i));
+        }
+    }
+
+    @Test
+    void testInsert_withNoRepetitionsAllowed() {
+        final PersistentSortedTreeList<Integer> persistentSortedTreeList = new PersistentSortedTreeList<>(false);
+
+        final List<Integer> testSample = getSample(2);
+        for (Integer element : testSample) {
+            persistentSortedTreeList.insert(element);
+        }
+
+        Assert.assertEquals(new ArrayList<>(new TreeSet<>(testSample)), getList(persistentSortedTreeList));
+    }
+
+    @Test
+    void testRemove() {
+        final PersistentSortedTreeList<Integer> persistentSortedTreeList = new PersistentSortedTreeList<>(true);
+
+        final List<Integer> testSample = getSample(1);
+        for (Integer element : testSample) {
+            persistentSortedTreeList.insert(element);
+        }
+        final List<Integer> remaining = new ArrayList<>(testSample);
+
+        for (Integer element : testSample.subList(0, testSample.size() / 2)) {
+            persistentSortedTreeList.remove(element);
+            remaining.remove(element);
+        }
+        persistentSortedTreeList.remove(-1);
+        Collections.sort(remaining);
+
+        Assert.assertEquals(remaining, getList(persistentSortedTreeList));
+        Assert.assertEquals(remaining.size(), persistentSortedTreeList.size());
+    }
+
+    @Test
+    void testPopFirstAndPopLast() {
+        final PersistentSortedTreeList<Integer> persistentSortedTreeList = new PersistentSortedTreeList<>(true);
+
+        final List<Integer> testSample = getSample(2);
+        for (Integer element : testSample) {
+            persistentSortedTreeList.insert(element);
+        }
+        Collections.sort(testSample);
+
+        int from = 0;
+        int to = testSample.size() - 1;
+        while (from <= to) {
+            if (random.nextBoolean()) {
+                Assert.assertEquals(testSample.get(from++), persistentSortedTreeList.popFirst());
+            } else {
+                Assert.assertEquals(testSample.get(to--), persistentSortedTreeList.popLast());
+            }
+        }
+
+        Assert.assertEquals(0, persistentSortedTreeList.size());
+        Assert.assertNull(persistentSortedTreeList.popFirst());
+    }
+
+    @Test
+    void testSnapshot_isNotChangedByLaterUpdates() {
+        final PersistentSortedTreeList<Integer> persistentSortedTreeList = new PersistentSortedTreeList<>(true);
+
+        final List<Integer> testSample = getSample(1);
+        for (Integer element : testSample) {
+            persistentSortedTreeList.insert(element);
+        }
+        Collections.sort(testSample);
+
+        final PersistentSortedTreeList<Integer>.Snapshot snapshot = persistentSortedTreeList.snapshot();
+        for (Integer element : getSample(1)) {
+            persistentSortedTreeList.insert(element);
+        }
+        persistentSortedTreeList.popFirst();
+        persistentSortedTreeList.remove(testSample.get(testSample.size() / 2));
+
+        final List<Integer> result = new ArrayList<>();
+        snapshot.forEach(result::add);
+        Assert.assertEquals(testSample, result);
+        Assert.assertEquals(testSample.size(), snapshot.size());
+        Assert.assertTrue(snapshot.contains(testSample.get(0)));
+    }
+
+    @Test
+    void testRange() {
+        final PersistentSortedTreeList<Integer> persistentSortedTreeList = new PersistentSortedTreeList<>(true);
+
+        final List<Integer> testSample = getSample(1);
+        for (Integer element : testSample) {
+            persistentSortedTreeList.insert(element);
+        }
+        Collections.sort(testSample);
+
+        for (int i = 0; i < 10; i++) {
+            final int from = random.nextInt(MAX_SIZE / 2);
+            final int to = random.nextInt(MAX_SIZE / 2);
+            final boolean fromInclusive = random.nextBoolean();
+            final boolean toInclusive = random.nextBoolean();
+
+            final List<Integer> expected = new ArrayList<>();
+            for (Integer element : testSample) {
+                if ((element > from || (fromInclusive && element == from))
+                        && (element < to || (toInclusive && element == to))) {
+                    expected.add(element);
+                }
+            }
+
+            final List<Integer> result = new ArrayList<>();
+            persistentSortedTreeList.range(from, fromInclusive, to, toInclusive).forEach(result::add);
+            Assert.assertEquals(expected, result);
+        }
+    }
+
+
+    private List<Integer> getSample(final int minSize) {
+        final int size = minSize + random.nextInt(MAX_SIZE);
+        final List<Integer> sample = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            sample.add(random.nextInt(Math.max(1, size / 2)));
+        }
+        return sample;
+    }
+
+    private <T extends Comparable<T>> List<T> getList(final PersistentSortedTreeList<T> persistentSortedTreeList) {
+        final List<T> list = new ArrayList<>();
+        persistentSortedTreeList.forEach(list::add);
+        return list;
+    }
+}
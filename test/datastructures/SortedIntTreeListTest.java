@@ -0,0 +1,209 @@
+package datastructures;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+class SortedIntTreeListTest {
+
+    private static final int MAX_SIZE = 100;
+
+    private Random random = new Random();
+
+
+    @Test
+    void testInsert() {
+        final SortedIntTreeList sortedIntTreeList = new SortedIntTreeList();
+
+        final int[] testSampleArray = getSampleArray(1, false);
+        insertElementsFromArray(testSampleArray, sortedIntTreeList);
+        Arrays.sort(testSampleArray);
+
+        Assert.assertArrayEquals(testSampleArray, getArrayFromList(sortedIntTreeList));
+        Assert.assertEquals(testSampleArray.length, sortedIntTreeList.size());
+        Assert.assertTrue(isBalanced(sortedIntTreeList.getRoot()));
+    }
+
+    @Test
+    void testInsert_withNoRepetitionsAllowed() {
+        final SortedIntTreeList sortedIntTreeList = new SortedIntTreeList(false);
+
+        final int[] testSampleArray = getSampleArray(2, true);
+        insertElementsFromArray(testSampleArray, sortedIntTreeList);
+        final int[] uniqueTestSampleArray = Arrays.stream(testSampleArray).distinct().sorted().toArray();
+
+        Assert.assertArrayEquals(uniqueTestSampleArray, getArrayFromList(sortedIntTreeList));
+        Assert.assertTrue(isBalanced(sortedIntTreeList.getRoot()));
+    }
+
+    @Test
+    void testInsert_withRepetitionsAllowed() {
+        final SortedIntTreeList sortedIntTreeList = new SortedIntTreeList(true);
+
+        final int[] testSampleArray = getSampleArray(2, true);
+        insertElementsFromArray(testSampleArray, sortedIntTreeList);
+        Arrays.sort(testSampleArray);
+
+        Assert.assertArrayEquals(testSampleArray, getArrayFromList(sortedIntTreeList));
+        Assert.assertTrue(isBalanced(sortedIntTreeList.getRoot()));
+    }
+
+    @Test
+    void testInsert_inAscendingOrder() {
+        final SortedIntTreeList sortedIntTreeList = new SortedIntTreeList();
+
+        for (int i = 0; i < MAX_SIZE; i++) {
+            sortedIntTreeList.insert(i);
+        }
+
+        Assert.assertEquals(MAX_SIZE, sortedIntTreeList.size());
+        Assert.assertTrue(isBalanced(sortedIntTreeList.getRoot()));
+    }
+
+    @Test
+    void testContainsAndFind() {
+        final SortedIntTreeList sortedIntTreeList = new SortedIntTreeList(true);
+
+        final int[] testSampleArray = getSampleArray(1, true);
+        insertElementsFromArray(testSampleArray, sortedIntTreeList);
+
+        for (int element : testSampleArray) {
+            Assert.assertTrue(sortedIntTreeList.contains(element));
+            Assert.assertEquals(element, sortedIntTreeList.find(element).getData());
+
+            final IntListNode first = sortedIntTreeList.findFirst(element);
+            final IntListNode last = sortedIntTreeList.findLast(element);
+            Assert.assertEquals(element, first.getData());
+            Assert.assertEquals(element, last.getData());
+            Assert.assertTrue(first.getPrev() == null || first.getPrev().getData() < element);
+            Assert.assertTrue(last.getNext() == null || last.getNext().getData() > element);
+        }
+        Assert.assertFalse(sortedIntTreeList.contains(-1));
+        Assert.assertNull(sortedIntTreeList.findFirst(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void testPopFirstAndPopLast() {
+        final SortedIntTreeList sortedIntTreeList = new SortedIntTreeList(true);
+
+        final int[] testSampleArray = getSampleArray(2, true);
+        insertElementsFromArray(testSampleArray, sortedIntTreeList);
+        Arrays.sort(testSampleArray);
+
+        int from = 0;
+        int to = testSampleArray.length - 1;
+        while (from <= to) {
+            if (random.nextBoolean()) {
+                Assert.assertEquals(testSampleArray[from++], sortedIntTreeList.popFirst());
+            } else {
+                Assert.assertEquals(testSampleArray[to--], sortedIntTreeList.popLast());
+            }
+            Assert.assertTrue(isBalanced(sortedIntTreeList.getRoot()));
+        }
+
+        Assert.assertEquals(0, sortedIntTreeList.size());
+        Assert.assertThrows(NoSuchElementException.class, sortedIntTreeList::popFirst);
+        Assert.assertThrows(NoSuchElementException.class, sortedIntTreeList::last);
+    }
+
+    @Test
+    void testRemove() {
+        final SortedIntTreeList sortedIntTreeList = new SortedIntTreeList();
+
+        final int[] testSampleArray = getSampleArray(1, false);
+        insertElementsFromArray(testSampleArray, sortedIntTreeList);
+
+        for (int i = 0; i < testSampleArray.length; i += 2) {
+            sortedIntTreeList.remove(testSampleArray[i]);
+            Assert.assertFalse(sortedIntTreeList.contains(testSampleArray[i]));
+            Assert.assertTrue(isBalanced(sortedIntTreeList.getRoot()));
+        }
+        Assert.assertEquals(testSampleArray.length / 2, sortedIntTreeList.size());
+    }
+
+    @Test
+    void testIterators() {
+        final SortedIntTreeList sortedIntTreeList = new SortedIntTreeList(true);
+
+        final int[] testSampleArray = getSampleArray(1, true);
+        insertElementsFromArray(testSampleArray, sortedIntTreeList);
+        Arrays.sort(testSampleArray);
+
+        final int[] ascending = new int[testSampleArray.length];
+        final int[] descending = new int[testSampleArray.length];
+        int i = 0;
+        for (PrimitiveIterator.OfInt iterator = sortedIntTreeList.iterator(); iterator.hasNext();) {
+            ascending[i++] = iterator.nextInt();
+        }
+        for (PrimitiveIterator.OfInt iterator = sortedIntTreeList.descendingIterator(); iterator.hasNext();) {
+            descending[--i] = iterator.nextInt();
+        }
+
+        Assert.assertArrayEquals(testSampleArray, ascending);
+        Assert.assertArrayEquals(testSampleArray, descending);
+    }
+
+    @Test
+    void testGetAndRank() {
+        final SortedIntTreeList sortedIntTreeList = new SortedIntTreeList(true);
+
+        final int[] testSampleArray = getSampleArray(1, true);
+        insertElementsFromArray(testSampleArray, sortedIntTreeList);
+        Arrays.sort(testSampleArray);
+
+        for (int i = 0; i < testSampleArray.length; i++) {
+            Assert.assertEquals(testSampleArray[i], sortedIntTreeList.get(i));
+            final long rank = sortedIntTreeList.rank(testSampleArray[i]);
+            Assert.assertTrue(rank <= i && testSampleArray[(int) rank] == testSampleArray[i]);
+        }
+        Assert.assertThrows(IndexOutOfBoundsException.class, () -> sortedIntTreeList.get(testSampleArray.length));
+    }
+
+
+    private int[] getSampleArray(final int minSize, final boolean withRepetitions) {
+        final int size = minSize + random.nextInt(MAX_SIZE);
+        final int bound = withRepetitions ? Math.max(1, size / 2) : Integer.MAX_VALUE;
+        return withRepetitions ? random.ints(size, 0, bound).toArray() : random.ints(0, bound).distinct().limit(size).toArray();
+    }
+
+    private void insertElementsFromArray(final int[] array, final SortedIntTreeList sortedIntTreeList) {
+        for (int i = 0; i < array.length; i++) {
+            sortedIntTreeList.insert(array[i]);
+        }
+    }
+
+    private int[] getArrayFromList(final SortedIntTreeList sortedIntTreeList) {
+        final int[] array = new int[(int) sortedIntTreeList.size()];
+        IntListNode current = sortedIntTreeList.getHead();
+
+        int i = 0;
+        while (current != null) {
+            array[i++] = current.getData();
+            current = current.getNext();
+        }
+
+        return array;
+    }
+
+    private long getHeight(final IntTreeNode root) {
+        if (root == null) {
+            return -1;
+        }
+
+        return 1 + Math.max(getHeight(root.getLeft()), getHeight(root.getRight()));
+    }
+
+    private boolean isBalanced(final IntTreeNode root) {
+        if (root == null) {
+            return true;
+        }
+
+        return isBalanced(root.getLeft()) &&
+               isBalanced(root.getRight()) &&
+               Math.abs(getHeight(root.getLeft()) - getHeight(root.getRight())) < 2;
+    }
+}
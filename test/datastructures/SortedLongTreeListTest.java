@@ -0,0 +1,209 @@
+package datastructures;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+class SortedLongTreeListTest {
+
+    private static final int MAX_SIZE = 100;
+
+    private Random random = new Random();
+
+
+    @Test
+    void testInsert() {
+        final SortedLongTreeList sortedLongTreeList = new SortedLongTreeList();
+
+        final long[] testSampleArray = getSampleArray(1, false);
+        insertElementsFromArray(testSampleArray, sortedLongTreeList);
+        Arrays.sort(testSampleArray);
+
+        Assert.assertArrayEquals(testSampleArray, getArrayFromList(sortedLongTreeList));
+        Assert.assertEquals(testSampleArray.length, sortedLongTreeList.size());
+        Assert.assertTrue(isBalanced(sortedLongTreeList.getRoot()));
+    }
+
+    @Test
+    void testInsert_withNoRepetitionsAllowed() {
+        final SortedLongTreeList sortedLongTreeList = new SortedLongTreeList(false);
+
+        final long[] testSampleArray = getSampleArray(2, true);
+        insertElementsFromArray(testSampleArray, sortedLongTreeList);
+        final long[] uniqueTestSampleArray = Arrays.stream(testSampleArray).distinct().sorted().toArray();
+
+        Assert.assertArrayEquals(uniqueTestSampleArray, getArrayFromList(sortedLongTreeList));
+        Assert.assertTrue(isBalanced(sortedLongTreeList.getRoot()));
+    }
+
+    @Test
+    void testInsert_withRepetitionsAllowed() {
+        final SortedLongTreeList sortedLongTreeList = new SortedLongTreeList(true);
+
+        final long[] testSampleArray = getSampleArray(2, true);
+        insertElementsFromArray(testSampleArray, sortedLongTreeList);
+        Arrays.sort(testSampleArray);
+
+        Assert.assertArrayEquals(testSampleArray, getArrayFromList(sortedLongTreeList));
+        Assert.assertTrue(isBalanced(sortedLongTreeList.getRoot()));
+    }
+
+    @Test
+    void testInsert_inAscendingOrder() {
+        final SortedLongTreeList sortedLongTreeList = new SortedLongTreeList();
+
+        for (long i = 0; i < MAX_SIZE; i++) {
+            sortedLongTreeList.insert(i);
+        }
+
+        Assert.assertEquals(MAX_SIZE, sortedLongTreeList.size());
+        Assert.assertTrue(isBalanced(sortedLongTreeList.getRoot()));
+    }
+
+    @Test
+    void testContainsAndFind() {
+        final SortedLongTreeList sortedLongTreeList = new SortedLongTreeList(true);
+
+        final long[] testSampleArray = getSampleArray(1, true);
+        insertElementsFromArray(testSampleArray, sortedLongTreeList);
+
+        for (long element : testSampleArray) {
+            Assert.assertTrue(sortedLongTreeList.contains(element));
+            Assert.assertEquals(element, sortedLongTreeList.find(element).getData());
+
+            final LongListNode first = sortedLongTreeList.findFirst(element);
+            final LongListNode last = sortedLongTreeList.findLast(element);
+            Assert.assertEquals(element, first.getData());
+            Assert.assertEquals(element, last.getData());
+            Assert.assertTrue(first.getPrev() == null || first.getPrev().getData() < element);
+            Assert.assertTrue(last.getNext() == null || last.getNext().getData() > element);
+        }
+        Assert.assertFalse(sortedLongTreeList.contains(-1L));
+        Assert.assertNull(sortedLongTreeList.findFirst(Long.MAX_VALUE));
+    }
+
+    @Test
+    void testPopFirstAndPopLast() {
+        final SortedLongTreeList sortedLongTreeList = new SortedLongTreeList(true);
+
+        final long[] testSampleArray = getSampleArray(2, true);
+        insertElementsFromArray(testSampleArray, sortedLongTreeList);
+        Arrays.sort(testSampleArray);
+
+        int from = 0;
+        int to = testSampleArray.length - 1;
+        while (from <= to) {
+            if (random.nextBoolean()) {
+                Assert.assertEquals(testSampleArray[from++], sortedLongTreeList.popFirst());
+            } else {
+                Assert.assertEquals(testSampleArray[to--], sortedLongTreeList.popLast());
+            }
+            Assert.assertTrue(isBalanced(sortedLongTreeList.getRoot()));
+        }
+
+        Assert.assertEquals(0, sortedLongTreeList.size());
+        Assert.assertThrows(NoSuchElementException.class, sortedLongTreeList::popFirst);
+        Assert.assertThrows(NoSuchElementException.class, sortedLongTreeList::last);
+    }
+
+    @Test
+    void testRemove() {
+        final SortedLongTreeList sortedLongTreeList = new SortedLongTreeList();
+
+        final long[] testSampleArray = getSampleArray(1, false);
+        insertElementsFromArray(testSampleArray, sortedLongTreeList);
+
+        for (int i = 0; i < testSampleArray.length; i += 2) {
+            sortedLongTreeList.remove(testSampleArray[i]);
+            Assert.assertFalse(sortedLongTreeList.contains(testSampleArray[i]));
+            Assert.assertTrue(isBalanced(sortedLongTreeList.getRoot()));
+        }
+        Assert.assertEquals(testSampleArray.length / 2, sortedLongTreeList.size());
+    }
+
+    @Test
+    void testIterators() {
+        final SortedLongTreeList sortedLongTreeList = new SortedLongTreeList(true);
+
+        final long[] testSampleArray = getSampleArray(1, true);
+        insertElementsFromArray(testSampleArray, sortedLongTreeList);
+        Arrays.sort(testSampleArray);
+
+        final long[] ascending = new long[testSampleArray.length];
+        final long[] descending = new long[testSampleArray.length];
+        int i = 0;
+        for (PrimitiveIterator.OfLong iterator = sortedLongTreeList.iterator(); iterator.hasNext();) {
+            ascending[i++] = iterator.nextLong();
+        }
+        for (PrimitiveIterator.OfLong iterator = sortedLongTreeList.descendingIterator(); iterator.hasNext();) {
+            descending[--i] = iterator.nextLong();
+        }
+
+        Assert.assertArrayEquals(testSampleArray, ascending);
+        Assert.assertArrayEquals(testSampleArray, descending);
+    }
+
+    @Test
+    void testGetAndRank() {
+        final SortedLongTreeList sortedLongTreeList = new SortedLongTreeList(true);
+
+        final long[] testSampleArray = getSampleArray(1, true);
+        insertElementsFromArray(testSampleArray, sortedLongTreeList);
+        Arrays.sort(testSampleArray);
+
+        for (int i = 0; i < testSampleArray.length; i++) {
+            Assert.assertEquals(testSampleArray[i], sortedLongTreeList.get(i));
+            final long rank = sortedLongTreeList.rank(testSampleArray[i]);
+            Assert.assertTrue(rank <= i && testSampleArray[(int) rank] == testSampleArray[i]);
+        }
+        Assert.assertThrows(IndexOutOfBoundsException.class, () -> sortedLongTreeList.get(testSampleArray.length));
+    }
+
+
+    private long[] getSampleArray(final int minSize, final boolean withRepetitions) {
+        final int size = minSize + random.nextInt(MAX_SIZE);
+        final long bound = withRepetitions ? Math.max(1, size / 2) : Long.MAX_VALUE;
+        return withRepetitions ? random.longs(size, 0, bound).toArray() : random.longs(0, bound).distinct().limit(size).toArray();
+    }
+
+    private void insertElementsFromArray(final long[] array, final SortedLongTreeList sortedLongTreeList) {
+        for (int i = 0; i < array.length; i++) {
+            sortedLongTreeList.insert(array[i]);
+        }
+    }
+
+    private long[] getArrayFromList(final SortedLongTreeList sortedLongTreeList) {
+        final long[] array = new long[(int) sortedLongTreeList.size()];
+        LongListNode current = sortedLongTreeList.getHead();
+
+        int i = 0;
+        while (current != null) {
+            array[i++] = current.getData();
+            current = current.getNext();
+        }
+
+        return array;
+    }
+
+    private long getHeight(final LongTreeNode root) {
+        if (root == null) {
+            return -1;
+        }
+
+        return 1 + Math.max(getHeight(root.getLeft()), getHeight(root.getRight()));
+    }
+
+    private boolean isBalanced(final LongTreeNode root) {
+        if (root == null) {
+            return true;
+        }
+
+        return isBalanced(root.getLeft()) &&
+               isBalanced(root.getRight()) &&
+               Math.abs(getHeight(root.getLeft()) - getHeight(root.getRight())) < 2;
+    }
+}
@@ -1,8 +1,30 @@
 package datastructures;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
 import java.util.Random;
+import java.util.Spliterator;
 import java.util.TreeSet;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import org.junit.Assert;
 import org.junit.jupiter.api.Test;
@@ -337,90 +359,1656 @@ class SortedTreeListTest {
         }
     }
 
+    @Test
+    void testGet() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true);
 
-    private Integer[] getSampleArrayWithUniqueElements(final int minSize) {
-        final int n = random.nextInt(MAX_SIZE - minSize + 1) + minSize;
-        final Integer[] array = new Integer[n];
+        final Integer[] testSampleArray = getSampleArray(1);
+        insertElementsFromArray(testSampleArray, sortedTreeList);
 
-        for (int i = 0; i < n; i++) {
-            array[i] = i;
+        Arrays.sort(testSampleArray);
+        for (int i = 0; i < testSampleArray.length; i++) {
+            Assert.assertEquals(testSampleArray[i], sortedTreeList.get(i));
         }
+        Assert.assertNull(sortedTreeList.get(-1));
+        Assert.assertNull(sortedTreeList.get(testSampleArray.length));
+    }
 
-        for (int i = 0; i < n; i++) {
-            int j = random.nextInt(n);
-            int tmp = array[i];
-            array[i] = array[j];
-            array[j] = tmp;
+    @Test
+    void testGet_afterRemovals() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(false);
+
+        final Integer[] testSampleArray = getSampleArrayWithUniqueElements(2);
+        insertElementsFromArray(testSampleArray, sortedTreeList);
+
+        final int removed = testSampleArray.length / 2;
+        for (int i = 0; i < removed; i++) {
+            sortedTreeList.remove(testSampleArray[i]);
         }
 
-        return array;
+        final Integer[] remaining = Arrays.copyOfRange(testSampleArray, removed, testSampleArray.length);
+        Arrays.sort(remaining);
+        for (int i = 0; i < remaining.length; i++) {
+            Assert.assertEquals(remaining[i], sortedTreeList.get(i));
+        }
     }
 
-    private Integer[] getSampleArrayWithRepeatedElements(final int minSize, final double uniquenessRate) {
-        final int n = random.nextInt(MAX_SIZE - minSize + 1) + minSize;
-        final Integer[] array = new Integer[n];
+    @Test
+    void testRank() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true);
 
-        final int m = (int) (n * uniquenessRate) + 1;
+        final Integer[] testSampleArray = getSampleArray(1);
+        insertElementsFromArray(testSampleArray, sortedTreeList);
 
-        for (int i = 0; i < n; i++) {
-            array[i] = random.nextInt(m);
+        for (int i = -1; i <= MAX_SIZE; i++) {
+            Assert.assertEquals(countElements(testSampleArray, Integer.MIN_VALUE, i - 1), sortedTreeList.rank(i));
         }
+    }
 
-        return array;
+    @Test
+    void testIndexOf() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true);
+
+        final Integer[] testSampleArray = getSampleArrayWithRepeatedElements(1, 0.5);
+        insertElementsFromArray(testSampleArray, sortedTreeList);
+
+        Arrays.sort(testSampleArray);
+        final Integer[] uniqueTestSampleArray = getUniqueElements(testSampleArray);
+        for (Integer i : uniqueTestSampleArray) {
+            Assert.assertEquals(Arrays.asList(testSampleArray).indexOf(i), sortedTreeList.indexOf(i));
+        }
+        Assert.assertEquals(-1L, sortedTreeList.indexOf(-1));
+        Assert.assertEquals(-1L, sortedTreeList.indexOf(MAX_SIZE));
     }
 
-    private Integer[] getSampleArray(final int minSize) {
-        final int n = random.nextInt(MAX_SIZE - minSize + 1) + minSize;
-        final Integer[] array = new Integer[n];
+    @Test
+    void testCountBetween() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true);
 
-        for (int i = 0; i < n; i++) {
-            array[i] = random.nextInt(n);
+        final Integer[] testSampleArray = getSampleArray(1);
+        insertElementsFromArray(testSampleArray, sortedTreeList);
+
+        for (int i = 0; i < MAX_SIZE; i++) {
+            final int from = random.nextInt(MAX_SIZE + 2) - 1;
+            final int to = random.nextInt(MAX_SIZE + 2) - 1;
+            Assert.assertEquals(countElements(testSampleArray, from, to), sortedTreeList.countBetween(from, to));
         }
+    }
 
-        return array;
+    @Test
+    void testFromSorted() {
+        final Integer[] testSampleArray = getSampleArrayWithUniqueElements(1);
+        Arrays.sort(testSampleArray);
+
+        final SortedTreeList<Integer> sortedTreeList =
+                SortedTreeList.fromSorted(Arrays.asList(testSampleArray).iterator(), testSampleArray.length);
+
+        final Integer[] resultArray = getArrayFromSortedTreeList(sortedTreeList);
+
+        Assert.assertArrayEquals(testSampleArray, resultArray);
+        Assert.assertEquals(testSampleArray.length, sortedTreeList.size());
+        Assert.assertEquals(testSampleArray[0], sortedTreeList.first());
+        Assert.assertEquals(testSampleArray[testSampleArray.length - 1], sortedTreeList.last());
+        Assert.assertTrue(isBalanced(sortedTreeList));
+        for (int i = 0; i < testSampleArray.length; i++) {
+            Assert.assertEquals(testSampleArray[i], sortedTreeList.get(i));
+        }
     }
 
-    private Integer[] getUniqueElements(final Integer[] array) {
-        TreeSet<Integer> set = new TreeSet<Integer>();
-        for (Integer i : array) {
-            set.add(i);
+    @Test
+    void testFromSorted_withRepetitionsAllowed() {
+        final Integer[] testSampleArray = getSampleArrayWithRepeatedElements(1, 0.5);
+        Arrays.sort(testSampleArray);
+
+        final SortedTreeList<Integer> sortedTreeList = SortedTreeList.fromSorted(
+                Arrays.asList(testSampleArray).iterator(), testSampleArray.length, true, true);
+        sortedTreeList.insert(random.nextInt(MAX_SIZE));
+        sortedTreeList.remove(testSampleArray[random.nextInt(testSampleArray.length)]);
+
+        Assert.assertEquals(testSampleArray.length, sortedTreeList.size());
+        Assert.assertTrue(isBalanced(sortedTreeList));
+        Assert.assertTrue(isSorted(getArrayFromSortedTreeList(sortedTreeList)));
+    }
+
+    @Test
+    void testFromSorted_withNoElements() {
+        final SortedTreeList<Integer> sortedTreeList =
+                SortedTreeList.fromSorted(Arrays.<Integer>asList().iterator(), 0);
+
+        Assert.assertEquals(0, sortedTreeList.size());
+        Assert.assertNull(sortedTreeList.getRoot());
+        Assert.assertNull(sortedTreeList.first());
+    }
+
+    @Test
+    void testFromSorted_whenNotSorted() {
+        final Integer[] testSampleArray = new Integer[] {1, 3, 2};
+
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> SortedTreeList.fromSorted(Arrays.asList(testSampleArray).iterator(), testSampleArray.length));
+    }
+
+    @Test
+    void testFromSorted_whenRepeatedAndNoRepetitionsAllowed() {
+        final Integer[] testSampleArray = new Integer[] {1, 2, 2};
+
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> SortedTreeList.fromSorted(Arrays.asList(testSampleArray).iterator(), testSampleArray.length));
+    }
+
+    @Test
+    void testFromSorted_whenFewerElementsThanSize() {
+        final Integer[] testSampleArray = new Integer[] {1, 2, 3};
+
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> SortedTreeList.fromSorted(Arrays.asList(testSampleArray).iterator(), testSampleArray.length + 1));
+    }
+
+    @Test
+    void testFromSorted_whenNegativeSize() {
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> SortedTreeList.fromSorted(Arrays.asList(1, 2, 3).iterator(), -1L));
+    }
+
+    @Test
+    void testInsertAll() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(false);
+
+        final Integer[] testSampleArray = getSampleArrayWithRepeatedElements(2, 0.5);
+        final int mid = testSampleArray.length / 2;
+        insertElementsFromArray(Arrays.copyOfRange(testSampleArray, 0, mid), sortedTreeList);
+        sortedTreeList.insertAll(Arrays.asList(Arrays.copyOfRange(testSampleArray, mid, testSampleArray.length)));
+
+        final Integer[] resultArray = getArrayFromSortedTreeList(sortedTreeList);
+        final Integer[] uniqueTestSampleArray = getUniqueElements(testSampleArray);
+
+        Assert.assertArrayEquals(uniqueTestSampleArray, resultArray);
+        Assert.assertEquals(uniqueTestSampleArray.length, sortedTreeList.size());
+        Assert.assertTrue(isBalanced(sortedTreeList));
+    }
+
+    @Test
+    void testInsertAll_withRepetitionsAllowed() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true);
+
+        final Integer[] testSampleArray = getSampleArrayWithRepeatedElements(2, 0.5);
+        final int mid = testSampleArray.length / 2;
+        insertElementsFromArray(Arrays.copyOfRange(testSampleArray, 0, mid), sortedTreeList);
+        sortedTreeList.insertAll(Arrays.asList(Arrays.copyOfRange(testSampleArray, mid, testSampleArray.length)));
+
+        final Integer[] resultArray = getArrayFromSortedTreeList(sortedTreeList);
+        Arrays.sort(testSampleArray);
+
+        Assert.assertArrayEquals(testSampleArray, resultArray);
+        Assert.assertTrue(isBalanced(sortedTreeList));
+        for (int i = 0; i < testSampleArray.length; i++) {
+            Assert.assertEquals(testSampleArray[i], sortedTreeList.get(i));
         }
+    }
 
-        return set.toArray(new Integer[set.size()]);
+    @Test
+    void testInsertAll_whenEqualToExisting() {
+        final long[] a1 = {1, 1};
+        final long[] a2 = {1, 2};
+        final long[] a3 = {1, 3};
+        final long[] z = {9, 0};
+
+        final SortedTreeList<long[]> merged = new SortedTreeList<>(element -> element[0], true);
+        merged.insert(a1);
+        merged.insertAll(Arrays.asList(z, a2));
+        final SortedTreeList<long[]> inserted = new SortedTreeList<>(element -> element[0], true);
+        inserted.insert(a1);
+        for (int i = 2; i < MAX_SIZE; i++) {
+            inserted.insert(new long[] {i, 0});
+        }
+        inserted.insertAll(Arrays.asList(a3));
+
+        // The new elements go before the equal ones already in the list, as
+        // insert places them, whether the batch is merged or not.
+        Assert.assertEquals(Arrays.asList(a2, a1, z), getListFromIterator(merged.iterator()));
+        Assert.assertSame(a3, inserted.getHead().getData());
     }
 
-    private <T> void scarambleArray(final T[] array) {
-        final int n = array.length;
-        for (int i = 0; i < n; i++) {
-            int j = random.nextInt(n);
-            T tmp = array[i];
-            array[i] = array[j];
-            array[j] = tmp;
+    @Test
+    void testInsertAll_withSmallBatches() {
+        for (boolean allowRepetitions : new boolean[] {false, true}) {
+            final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(allowRepetitions);
+
+            final Integer[] testSampleArray = getSampleArray(MAX_SIZE);
+            insertElementsFromArray(testSampleArray, sortedTreeList);
+            final Integer[] batch = getSampleArray(1);
+            Arrays.fill(batch, batch.length / 2, batch.length, batch[0]);
+            final Integer[] smallBatch = Arrays.copyOfRange(batch, 0, Math.min(batch.length, 3));
+            sortedTreeList.insertAll(Arrays.asList(smallBatch));
+
+            final Integer[] allElements = Arrays.copyOf(testSampleArray, testSampleArray.length + smallBatch.length);
+            System.arraycopy(smallBatch, 0, allElements, testSampleArray.length, smallBatch.length);
+            final Integer[] expected = allowRepetitions ? allElements : getUniqueElements(allElements);
+            Arrays.sort(expected);
+
+            Assert.assertArrayEquals(expected, getArrayFromSortedTreeList(sortedTreeList));
+            Assert.assertEquals(expected.length, sortedTreeList.size());
+            Assert.assertTrue(isBalanced(sortedTreeList));
         }
     }
 
-    private Integer[] getArrayFromSortedTreeList(final SortedTreeList<Integer> sortedTreeList) {
-        return getArrayFromSortedTreeList(sortedTreeList, new Integer[(int) sortedTreeList.size()]);
+    @Test
+    void testInsertAll_whenAfterLast() {
+        for (boolean allowRepetitions : new boolean[] {false, true}) {
+            final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(allowRepetitions);
+
+            final Integer[] testSampleArray = getSampleArray(MAX_SIZE);
+            insertElementsFromArray(testSampleArray, sortedTreeList);
+            final Integer[] batch = getSampleArray(1);
+            for (int i = 0; i < batch.length; i++) {
+                batch[i] += MAX_SIZE;
+            }
+            sortedTreeList.insertAll(Arrays.asList(batch));
+
+            final Integer[] allElements = Arrays.copyOf(testSampleArray, testSampleArray.length + batch.length);
+            System.arraycopy(batch, 0, allElements, testSampleArray.length, batch.length);
+            final Integer[] expected = allowRepetitions ? allElements : getUniqueElements(allElements);
+            Arrays.sort(expected);
+
+            Assert.assertArrayEquals(expected, getArrayFromSortedTreeList(sortedTreeList));
+            Assert.assertEquals(expected.length, sortedTreeList.size());
+            Assert.assertEquals(expected.length, countNodes(sortedTreeList.getRoot()));
+            Assert.assertTrue(isBalanced(sortedTreeList));
+        }
     }
 
-    private <T extends Comparable<T>> void insertElementsFromArray(
-            final T[] array, final SortedTreeList<T> sortedTreeList) {
-        for (int i = 0; i < array.length; i++) {
-            sortedTreeList.insert(array[i]);
+    @Test
+    void testInsertAll_whenEmpty() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true);
+
+        final Integer[] testSampleArray = getSampleArray(1);
+        sortedTreeList.insertAll(Arrays.asList(testSampleArray));
+
+        Arrays.sort(testSampleArray);
+
+        Assert.assertArrayEquals(testSampleArray, getArrayFromSortedTreeList(sortedTreeList));
+        Assert.assertTrue(isBalanced(sortedTreeList));
+    }
+
+    @Test
+    void testRange() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true);
+
+        final Integer[] testSampleArray = getSampleArray(1);
+        insertElementsFromArray(testSampleArray, sortedTreeList);
+        Arrays.sort(testSampleArray);
+
+        for (int i = 0; i < MAX_SIZE; i++) {
+            final int from = random.nextInt(MAX_SIZE + 2) - 1;
+            final int to = random.nextInt(MAX_SIZE + 2) - 1;
+            final boolean fromInclusive = random.nextBoolean();
+            final boolean toInclusive = random.nextBoolean();
+
+            final List<Integer> expected = new ArrayList<>();
+            for (Integer j : testSampleArray) {
+                if ((fromInclusive ? j >= from : j > from) && (toInclusive ? j <= to : j < to)) {
+                    expected.add(j);
+                }
+            }
+
+            final SortedTreeList<Integer>.Range range = sortedTreeList.range(from, fromInclusive, to, toInclusive);
+            Assert.assertEquals(expected, getListFromIterator(range.iterator()));
+            Collections.reverse(expected);
+            Assert.assertEquals(expected, getListFromIterator(range.descendingIterator()));
         }
     }
 
-    private <T extends Comparable<T>> T[] getArrayFromSortedTreeList(
-            final SortedTreeList<T> sortedTreeList, final T[] array) {
-        ListNode<T> current = sortedTreeList.getHead();
+    @Test
+    void testRange_withNoElements() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>();
 
-        int i = 0;
-        while (current != null) {
-            array[i++] = current.getData();
-            current = current.getNext();
+        Assert.assertFalse(sortedTreeList.range(0, true, MAX_SIZE, true).iterator().hasNext());
+        Assert.assertFalse(sortedTreeList.range(0, true, MAX_SIZE, true).descendingIterator().hasNext());
+    }
+
+    @Test
+    void testHeadList() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true);
+
+        final Integer[] testSampleArray = getSampleArray(1);
+        insertElementsFromArray(testSampleArray, sortedTreeList);
+        Arrays.sort(testSampleArray);
+
+        final int to = random.nextInt(MAX_SIZE);
+        final List<Integer> expected = new ArrayList<>();
+        for (Integer j : testSampleArray) {
+            if (j < to) {
+                expected.add(j);
+            }
         }
 
-        return array;
+        Assert.assertEquals(expected, getListFromIterator(sortedTreeList.headList(to, false).iterator()));
+    }
+
+    @Test
+    void testTailList() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true);
+
+        final Integer[] testSampleArray = getSampleArray(1);
+        insertElementsFromArray(testSampleArray, sortedTreeList);
+        Arrays.sort(testSampleArray);
+
+        final int from = random.nextInt(MAX_SIZE);
+        final List<Integer> expected = new ArrayList<>();
+        for (Integer j : testSampleArray) {
+            if (j >= from) {
+                expected.add(j);
+            }
+        }
+
+        Assert.assertEquals(expected, getListFromIterator(sortedTreeList.tailList(from, true).iterator()));
+    }
+
+    @Test
+    void testInsert_inAscendingOrder() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true);
+
+        final Integer[] testSampleArray = getSampleArray(1);
+        Arrays.sort(testSampleArray);
+        insertElementsFromArray(testSampleArray, sortedTreeList);
+
+        Assert.assertArrayEquals(testSampleArray, getArrayFromSortedTreeList(sortedTreeList));
+        Assert.assertTrue(isBalanced(sortedTreeList));
+    }
+
+    @Test
+    void testInsertAfterHint() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true);
+
+        final Integer[] testSampleArray = getSampleArray(1);
+        ListNode<Integer> hint = null;
+        for (Integer i : testSampleArray) {
+            hint = hint == null ? insertAndFind(sortedTreeList, i) : sortedTreeList.insertAfterHint(hint, i);
+            Assert.assertEquals(i, hint.getData());
+        }
+
+        Arrays.sort(testSampleArray);
+
+        Assert.assertArrayEquals(testSampleArray, getArrayFromSortedTreeList(sortedTreeList));
+        Assert.assertTrue(isBalanced(sortedTreeList));
+    }
+
+    @Test
+    void testInsertAfterHint_withNoRepetitionsAllowed() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(false);
+
+        final Integer[] testSampleArray = getSampleArrayWithRepeatedElements(2, 0.5);
+        insertElementsFromArray(testSampleArray, sortedTreeList);
+
+        for (Integer i : testSampleArray) {
+            final ListNode<Integer> hint = sortedTreeList.find(testSampleArray[random.nextInt(testSampleArray.length)]);
+            Assert.assertNull(sortedTreeList.insertAfterHint(hint, i));
+        }
+
+        Assert.assertArrayEquals(getUniqueElements(testSampleArray), getArrayFromSortedTreeList(sortedTreeList));
+        Assert.assertTrue(isBalanced(sortedTreeList));
+    }
+
+    @Test
+    void testInsertAfterHint_whenHintFromAnotherList() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>();
+        final SortedTreeList<Integer> anotherSortedTreeList = new SortedTreeList<>();
+        sortedTreeList.insert(1);
+        anotherSortedTreeList.insert(1);
+
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> sortedTreeList.insertAfterHint(anotherSortedTreeList.getHead(), 2));
+    }
+
+    @Test
+    void testInsertAfterHint_whenHintRemoved() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>();
+        sortedTreeList.insert(1);
+        sortedTreeList.insert(2);
+        final ListNode<Integer> hint = sortedTreeList.find(1);
+        sortedTreeList.remove(1);
+
+        Assert.assertThrows(IllegalArgumentException.class, () -> sortedTreeList.insertAfterHint(hint, 3));
+    }
+
+    @Test
+    void testInsert_withRepetitionsCounted() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true, true);
+
+        final Integer[] testSampleArray = getSampleArrayWithRepeatedElements(2, 0.25);
+        insertElementsFromArray(testSampleArray, sortedTreeList);
+
+        final Integer[] resultArray = getListFromIterator(sortedTreeList.iterator()).toArray(new Integer[0]);
+        Arrays.sort(testSampleArray);
+
+        Assert.assertArrayEquals(testSampleArray, resultArray);
+        Assert.assertEquals(testSampleArray.length, sortedTreeList.size());
+        Assert.assertEquals(getUniqueElements(testSampleArray).length, countNodes(sortedTreeList.getRoot()));
+        Assert.assertArrayEquals(getUniqueElements(testSampleArray), getArrayFromSortedTreeList(
+                sortedTreeList, new Integer[getUniqueElements(testSampleArray).length]));
+        Assert.assertTrue(isBalanced(sortedTreeList));
+        for (int i = 0; i < testSampleArray.length; i++) {
+            Assert.assertEquals(testSampleArray[i], sortedTreeList.get(i));
+        }
+    }
+
+    @Test
+    void testInsertAll_withRepetitionsCounted() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true, true);
+
+        final Integer[] testSampleArray = getSampleArrayWithRepeatedElements(2, 0.25);
+        final int mid = testSampleArray.length / 2;
+        insertElementsFromArray(Arrays.copyOfRange(testSampleArray, 0, mid), sortedTreeList);
+        sortedTreeList.insertAll(Arrays.asList(Arrays.copyOfRange(testSampleArray, mid, testSampleArray.length)));
+
+        Arrays.sort(testSampleArray);
+
+        Assert.assertEquals(Arrays.asList(testSampleArray), getListFromIterator(sortedTreeList.iterator()));
+        Assert.assertEquals(testSampleArray.length, sortedTreeList.size());
+        Assert.assertEquals(getUniqueElements(testSampleArray).length, countNodes(sortedTreeList.getRoot()));
+        Assert.assertTrue(isBalanced(sortedTreeList));
+    }
+
+    @Test
+    void testCount() {
+        for (boolean countRepetitions : new boolean[] {false, true}) {
+            final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true, countRepetitions);
+
+            final Integer[] testSampleArray = getSampleArrayWithRepeatedElements(1, 0.25);
+            insertElementsFromArray(testSampleArray, sortedTreeList);
+
+            for (int i = -1; i <= MAX_SIZE; i++) {
+                Assert.assertEquals(countElements(testSampleArray, i, i), sortedTreeList.count(i));
+            }
+        }
+    }
+
+    @Test
+    void testRemoveOccurrences() {
+        for (boolean countRepetitions : new boolean[] {false, true}) {
+            final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true, countRepetitions);
+
+            final Integer[] testSampleArray = getSampleArrayWithRepeatedElements(1, 0.25);
+            insertElementsFromArray(testSampleArray, sortedTreeList);
+
+            final Integer sample = testSampleArray[random.nextInt(testSampleArray.length)];
+            final long occurrences = countElements(testSampleArray, sample, sample);
+            final long toRemove = random.nextInt((int) occurrences + 2);
+
+            Assert.assertEquals(Math.min(toRemove, occurrences), sortedTreeList.remove(sample, toRemove));
+            Assert.assertEquals(Math.max(0L, occurrences - toRemove), sortedTreeList.count(sample));
+            Assert.assertEquals(testSampleArray.length - Math.min(toRemove, occurrences), sortedTreeList.size());
+            Assert.assertTrue(isBalanced(sortedTreeList));
+        }
+    }
+
+    @Test
+    void testPopFirst_withRepetitionsCounted() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true, true);
+
+        final Integer[] testSampleArray = getSampleArrayWithRepeatedElements(1, 0.25);
+        insertElementsFromArray(testSampleArray, sortedTreeList);
+        Arrays.sort(testSampleArray);
+
+        for (int i = 0; i < testSampleArray.length; i++) {
+            Assert.assertEquals(testSampleArray[i], sortedTreeList.popFirst());
+            Assert.assertEquals(testSampleArray.length - i - 1, sortedTreeList.size());
+            Assert.assertTrue(isBalanced(sortedTreeList));
+        }
+        Assert.assertNull(sortedTreeList.popFirst());
+    }
+
+    @Test
+    void testRange_withRepetitionsCounted() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true, true);
+
+        final Integer[] testSampleArray = getSampleArrayWithRepeatedElements(1, 0.25);
+        insertElementsFromArray(testSampleArray, sortedTreeList);
+        Arrays.sort(testSampleArray);
+
+        final int from = random.nextInt(MAX_SIZE);
+        final List<Integer> expected = new ArrayList<>();
+        for (Integer j : testSampleArray) {
+            if (j >= from) {
+                expected.add(j);
+            }
+        }
+
+        Assert.assertEquals(expected, getListFromIterator(sortedTreeList.tailList(from, true).iterator()));
+        Collections.reverse(expected);
+        Assert.assertEquals(expected, getListFromIterator(sortedTreeList.tailList(from, true).descendingIterator()));
+    }
+
+    @Test
+    void testConstructor_whenCountingRepetitionsNotAllowed() {
+        Assert.assertThrows(IllegalArgumentException.class, () -> new SortedTreeList<Integer>(false, true));
+    }
+
+
+    @Test
+    void testInsert_withWavlPolicy() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true, false, BalancingPolicy.WAVL);
+
+        final Integer[] testSampleArray = getSampleArrayWithRepeatedElements(2, 0.5);
+        insertElementsFromArray(testSampleArray, sortedTreeList);
+
+        final Integer[] resultArray = getArrayFromSortedTreeList(sortedTreeList);
+        Arrays.sort(testSampleArray);
+
+        Assert.assertArrayEquals(testSampleArray, resultArray);
+        // Without removals a WAVL tree is an AVL tree.
+        Assert.assertTrue(isBalanced(sortedTreeList));
+    }
+
+    @Test
+    void testRemove_withWavlPolicy() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true, false, BalancingPolicy.WAVL);
+
+        final Integer[] testSampleArray = getSampleArrayWithRepeatedElements(2, 0.5);
+        insertElementsFromArray(testSampleArray, sortedTreeList);
+        final List<Integer> remaining = new ArrayList<>(Arrays.asList(testSampleArray));
+
+        for (int i = 0; i < testSampleArray.length / 2; i++) {
+            final Integer sample = testSampleArray[random.nextInt(testSampleArray.length)];
+            sortedTreeList.remove(sample);
+            remaining.remove(sample);
+
+            Assert.assertEquals(remaining.size(), sortedTreeList.size());
+            Assert.assertTrue(getHeight(sortedTreeList.getRoot()) <= 2 * log2(sortedTreeList.size() + 1));
+        }
+        Collections.sort(remaining);
+
+        Assert.assertEquals(remaining, getListFromIterator(sortedTreeList.iterator()));
+        for (int i = 0; i < remaining.size(); i++) {
+            Assert.assertEquals(remaining.get(i), sortedTreeList.get(i));
+        }
+    }
+
+    @Test
+    void testPopFirst_withWavlPolicy() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true, false, BalancingPolicy.WAVL);
+
+        final Integer[] testSampleArray = getSampleArrayWithRepeatedElements(2, 0.5);
+        insertElementsFromArray(testSampleArray, sortedTreeList);
+        Arrays.sort(testSampleArray);
+
+        for (int i = 0; i < testSampleArray.length; i++) {
+            Assert.assertEquals(testSampleArray[i], sortedTreeList.popFirst());
+            Assert.assertTrue(getHeight(sortedTreeList.getRoot()) <= 2 * log2(sortedTreeList.size() + 1));
+        }
+        Assert.assertNull(sortedTreeList.getRoot());
+    }
+
+    @Test
+    void testStream() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true);
+
+        final Integer[] testSampleArray = getSampleArrayWithRepeatedElements(1, 0.5);
+        insertElementsFromArray(testSampleArray, sortedTreeList);
+        Arrays.sort(testSampleArray);
+
+        Assert.assertEquals(Arrays.asList(testSampleArray), sortedTreeList.stream().collect(Collectors.toList()));
+        Assert.assertEquals(Arrays.stream(testSampleArray).mapToLong(i -> i).sum(),
+                sortedTreeList.stream().mapToLong(i -> i).sum());
+    }
+
+    @Test
+    void testParallelStream() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true);
+
+        final Integer[] testSampleArray = getSampleArrayWithRepeatedElements(1, 0.5);
+        insertElementsFromArray(testSampleArray, sortedTreeList);
+        Arrays.sort(testSampleArray);
+
+        Assert.assertEquals(Arrays.asList(testSampleArray), sortedTreeList.parallelStream().collect(Collectors.toList()));
+    }
+
+    @Test
+    void testParallelStream_withRepetitionsCounted() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true, true);
+
+        final Integer[] testSampleArray = getSampleArrayWithRepeatedElements(1, 0.2);
+        insertElementsFromArray(testSampleArray, sortedTreeList);
+        Arrays.sort(testSampleArray);
+
+        Assert.assertEquals(Arrays.asList(testSampleArray), sortedTreeList.parallelStream().collect(Collectors.toList()));
+    }
+
+    @Test
+    void testSpliterator() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(false);
+
+        final Integer[] testSampleArray = getSampleArrayWithUniqueElements(2);
+        insertElementsFromArray(testSampleArray, sortedTreeList);
+        Arrays.sort(testSampleArray);
+
+        final Spliterator<Integer> suffix = sortedTreeList.spliterator();
+        Assert.assertTrue(suffix.hasCharacteristics(Spliterator.SORTED | Spliterator.SIZED | Spliterator.DISTINCT));
+        Assert.assertNull(suffix.getComparator());
+
+        final Spliterator<Integer> prefix = suffix.trySplit();
+        Assert.assertEquals(testSampleArray.length, prefix.estimateSize() + suffix.estimateSize());
+        Assert.assertTrue(Math.abs(prefix.estimateSize() - suffix.estimateSize()) <= 1);
+
+        final List<Integer> result = new ArrayList<>();
+        prefix.forEachRemaining(result::add);
+        suffix.forEachRemaining(result::add);
+        Assert.assertEquals(Arrays.asList(testSampleArray), result);
+    }
+
+    @Test
+    void testSpliterator_withRepetitionsAllowed() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true);
+
+        Assert.assertFalse(sortedTreeList.spliterator().hasCharacteristics(Spliterator.DISTINCT));
+        Assert.assertNull(sortedTreeList.spliterator().trySplit());
+    }
+
+    @Test
+    void testRemoveNode() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true);
+
+        final Integer[] testSampleArray = getSampleArrayWithRepeatedElements(2, 0.5);
+        insertElementsFromArray(testSampleArray, sortedTreeList);
+        Arrays.sort(testSampleArray);
+
+        final Integer sample = testSampleArray[random.nextInt(testSampleArray.length)];
+        final ListNode<Integer> first = sortedTreeList.findFirst(sample);
+        final ListNode<Integer> second = first.getNext();
+
+        Assert.assertEquals(sample, sortedTreeList.removeNode(first));
+        Assert.assertEquals(testSampleArray.length - 1, sortedTreeList.size());
+        if (second != null && second.getData().equals(sample)) {
+            Assert.assertSame(second, sortedTreeList.findFirst(sample));
+        }
+        Assert.assertEquals(countElements(testSampleArray, sample, sample) - 1, sortedTreeList.count(sample));
+        Assert.assertTrue(isBalanced(sortedTreeList));
+    }
+
+    @Test
+    void testRemoveNode_whenNodeFromAnotherList() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>();
+        final SortedTreeList<Integer> anotherSortedTreeList = new SortedTreeList<>();
+        sortedTreeList.insert(1);
+        anotherSortedTreeList.insert(1);
+
+        final ListNode<Integer> node = anotherSortedTreeList.find(1);
+        Assert.assertThrows(IllegalArgumentException.class, () -> sortedTreeList.removeNode(node));
+
+        anotherSortedTreeList.removeNode(node);
+        Assert.assertThrows(IllegalArgumentException.class, () -> anotherSortedTreeList.removeNode(node));
+    }
+
+    @Test
+    void testIteratorRemove() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true);
+
+        final Integer[] testSampleArray = getSampleArrayWithRepeatedElements(1, 0.5);
+        insertElementsFromArray(testSampleArray, sortedTreeList);
+        Arrays.sort(testSampleArray);
+
+        final List<Integer> expected = new ArrayList<>();
+        final Iterator<Integer> iterator = sortedTreeList.iterator();
+        for (int i = 0; iterator.hasNext(); i++) {
+            final Integer element = iterator.next();
+            if (i % 2 == 0) {
+                iterator.remove();
+            } else {
+                expected.add(element);
+            }
+        }
+
+        Assert.assertEquals(expected, getListFromIterator(sortedTreeList.iterator()));
+        Assert.assertEquals(expected.size(), sortedTreeList.size());
+        Assert.assertTrue(isBalanced(sortedTreeList));
+    }
+
+    @Test
+    void testIteratorRemove_withRepetitionsCounted() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true, true);
+        sortedTreeList.insertAll(Arrays.asList(1, 2, 2, 2, 3));
+
+        final Iterator<Integer> iterator = sortedTreeList.descendingIterator();
+        Assert.assertEquals(Integer.valueOf(3), iterator.next());
+        Assert.assertEquals(Integer.valueOf(2), iterator.next());
+        iterator.remove();
+        Assert.assertEquals(Integer.valueOf(2), iterator.next());
+        Assert.assertEquals(Integer.valueOf(2), iterator.next());
+        iterator.remove();
+        Assert.assertEquals(Integer.valueOf(1), iterator.next());
+        Assert.assertFalse(iterator.hasNext());
+        iterator.remove();
+
+        Assert.assertEquals(Arrays.asList(2, 3), getListFromIterator(sortedTreeList.iterator()));
+        Assert.assertThrows(IllegalStateException.class, iterator::remove);
+    }
+
+    @Test
+    void testIterator_whenModified() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>();
+        sortedTreeList.insertAll(Arrays.asList(1, 2, 3));
+
+        final Iterator<Integer> iterator = sortedTreeList.iterator();
+        iterator.next();
+        sortedTreeList.insert(4);
+
+        Assert.assertThrows(ConcurrentModificationException.class, iterator::next);
+    }
+
+    @Test
+    void testDescendingIterator() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true);
+
+        final Integer[] testSampleArray = getSampleArrayWithRepeatedElements(1, 0.5);
+        insertElementsFromArray(testSampleArray, sortedTreeList);
+        Arrays.sort(testSampleArray, Collections.reverseOrder());
+
+        Assert.assertEquals(Arrays.asList(testSampleArray), getListFromIterator(sortedTreeList.descendingIterator()));
+    }
+
+    @Test
+    void testListIterator() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true, random.nextBoolean());
+
+        final Integer[] testSampleArray = getSampleArrayWithRepeatedElements(1, 0.5);
+        insertElementsFromArray(testSampleArray, sortedTreeList);
+        Arrays.sort(testSampleArray);
+
+        final ListIterator<Integer> listIterator = sortedTreeList.listIterator();
+        for (int i = 0; i < testSampleArray.length; i++) {
+            Assert.assertEquals(i, listIterator.nextIndex());
+            Assert.assertEquals(testSampleArray[i], listIterator.next());
+        }
+        Assert.assertFalse(listIterator.hasNext());
+        for (int i = testSampleArray.length - 1; i >= 0; i--) {
+            Assert.assertEquals(i, listIterator.previousIndex());
+            Assert.assertEquals(testSampleArray[i], listIterator.previous());
+        }
+        Assert.assertFalse(listIterator.hasPrevious());
+        Assert.assertThrows(UnsupportedOperationException.class, () -> listIterator.add(0));
+    }
+
+    @Test
+    void testListIterator_fromNode() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true);
+
+        final Integer[] testSampleArray = getSampleArrayWithRepeatedElements(1, 0.5);
+        insertElementsFromArray(testSampleArray, sortedTreeList);
+        Arrays.sort(testSampleArray);
+
+        final Integer sample = testSampleArray[random.nextInt(testSampleArray.length)];
+        final int index = Arrays.asList(testSampleArray).indexOf(sample);
+
+        final ListIterator<Integer> listIterator = sortedTreeList.listIterator(sortedTreeList.findFirst(sample));
+        Assert.assertEquals(index, listIterator.nextIndex());
+        Assert.assertEquals(sample, listIterator.next());
+        listIterator.previous();
+        if (index > 0) {
+            Assert.assertEquals(testSampleArray[index - 1], listIterator.previous());
+        } else {
+            Assert.assertFalse(listIterator.hasPrevious());
+        }
+
+        final ListIterator<Integer> fromEnd = sortedTreeList.listIterator(null);
+        Assert.assertFalse(fromEnd.hasNext());
+        Assert.assertEquals(testSampleArray[testSampleArray.length - 1], fromEnd.previous());
+    }
+
+    @Test
+    void testListIteratorRemove() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true, random.nextBoolean());
+
+        final Integer[] testSampleArray = getSampleArrayWithRepeatedElements(1, 0.5);
+        insertElementsFromArray(testSampleArray, sortedTreeList);
+        Arrays.sort(testSampleArray);
+
+        // Goes to the end removing every third element, then comes back
+        // removing every other one of the rest.
+        final List<Integer> expected = new ArrayList<>(Arrays.asList(testSampleArray));
+        final ListIterator<Integer> listIterator = sortedTreeList.listIterator();
+        for (int i = 0; listIterator.hasNext(); i++) {
+            listIterator.next();
+            if (i % 3 == 0) {
+                listIterator.remove();
+                expected.remove(listIterator.nextIndex());
+            }
+        }
+        for (int i = 0; listIterator.hasPrevious(); i++) {
+            listIterator.previous();
+            if (i % 2 == 0) {
+                listIterator.remove();
+                expected.remove(listIterator.nextIndex());
+            }
+        }
+
+        Assert.assertEquals(expected, getListFromIterator(sortedTreeList.iterator()));
+        Assert.assertEquals(expected.size(), sortedTreeList.size());
+        Assert.assertTrue(isBalanced(sortedTreeList));
+    }
+
+    @Test
+    void testSplit() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true);
+
+        final Integer[] testSampleArray = getSampleArrayWithRepeatedElements(1, 0.5);
+        insertElementsFromArray(testSampleArray, sortedTreeList);
+        Arrays.sort(testSampleArray);
+
+        final Integer key = testSampleArray[random.nextInt(testSampleArray.length)];
+        final SortedTreeList<Integer> upper = sortedTreeList.split(key);
+
+        final List<Integer> expectedLower = new ArrayList<>();
+        final List<Integer> expectedUpper = new ArrayList<>();
+        for (Integer element : testSampleArray) {
+            (element < key ? expectedLower : expectedUpper).add(element);
+        }
+        Assert.assertEquals(expectedLower, getListFromIterator(sortedTreeList.iterator()));
+        Assert.assertEquals(expectedUpper, getListFromIterator(upper.iterator()));
+        Assert.assertEquals(expectedLower.size(), sortedTreeList.size());
+        Assert.assertEquals(expectedUpper.size(), upper.size());
+        Assert.assertTrue(isBalanced(sortedTreeList));
+        Assert.assertTrue(isBalanced(upper));
+        for (int i = 0; i < expectedUpper.size(); i++) {
+            Assert.assertEquals(expectedUpper.get(i), upper.get(i));
+        }
+    }
+
+    @Test
+    void testSplit_withWavlPolicy() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true, false, BalancingPolicy.WAVL);
+
+        final Integer[] testSampleArray = getSampleArrayWithRepeatedElements(1, 0.5);
+        insertElementsFromArray(testSampleArray, sortedTreeList);
+        Arrays.sort(testSampleArray);
+
+        final Integer key = testSampleArray[testSampleArray.length / 2];
+        final SortedTreeList<Integer> upper = sortedTreeList.split(key);
+        upper.insert(testSampleArray[0]);
+
+        Assert.assertEquals(testSampleArray[0], upper.first());
+        Assert.assertEquals(testSampleArray.length + 1, sortedTreeList.size() + upper.size());
+        Assert.assertTrue(sortedTreeList.size() == 0 || sortedTreeList.last() < key);
+    }
+
+    @Test
+    void testJoin() {
+        final SortedTreeList<Integer> lower = new SortedTreeList<>(true);
+        final SortedTreeList<Integer> upper = new SortedTreeList<>(true);
+
+        final Integer[] testSampleArray = getSampleArrayWithRepeatedElements(1, 0.5);
+        Arrays.sort(testSampleArray);
+        final int middle = random.nextInt(testSampleArray.length);
+        for (int i = 0; i < testSampleArray.length; i++) {
+            (i < middle ? lower : upper).insert(testSampleArray[i]);
+        }
+
+        Assert.assertSame(lower, SortedTreeList.join(lower, upper));
+
+        Assert.assertEquals(Arrays.asList(testSampleArray), getListFromIterator(lower.iterator()));
+        Assert.assertEquals(testSampleArray.length, lower.size());
+        Assert.assertTrue(isBalanced(lower));
+        Assert.assertEquals(0, upper.size());
+        Assert.assertNull(upper.getHead());
+    }
+
+    @Test
+    void testJoin_whenOverlapping() {
+        final SortedTreeList<Integer> lower = new SortedTreeList<>();
+        final SortedTreeList<Integer> upper = new SortedTreeList<>();
+        lower.insertAll(Arrays.asList(1, 3));
+        upper.insertAll(Arrays.asList(3, 5));
+
+        Assert.assertThrows(IllegalArgumentException.class, () -> SortedTreeList.join(lower, upper));
+        Assert.assertThrows(IllegalArgumentException.class, () -> SortedTreeList.join(upper, lower));
+        Assert.assertThrows(IllegalArgumentException.class, () -> SortedTreeList.join(lower, lower));
+        Assert.assertEquals(2, lower.size());
+        Assert.assertEquals(2, upper.size());
+    }
+
+    @Test
+    void testJoin_withRepetitionsCounted() {
+        final SortedTreeList<Integer> lower = new SortedTreeList<>(true, true);
+        final SortedTreeList<Integer> upper = new SortedTreeList<>(true, true);
+        lower.insertAll(Arrays.asList(1, 3, 3));
+        upper.insertAll(Arrays.asList(3, 5));
+
+        SortedTreeList.join(lower, upper);
+
+        Assert.assertEquals(Arrays.asList(1, 3, 3, 3, 5), getListFromIterator(lower.iterator()));
+        Assert.assertEquals(5, lower.size());
+        Assert.assertEquals(3, countNodes(lower.getRoot()));
+    }
+
+    @Test
+    void testRemoveRange() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true, random.nextBoolean());
+
+        final Integer[] testSampleArray = getSampleArrayWithRepeatedElements(1, 0.5);
+        insertElementsFromArray(testSampleArray, sortedTreeList);
+        Arrays.sort(testSampleArray);
+
+        final int from = testSampleArray[random.nextInt(testSampleArray.length)];
+        final int to = from + random.nextInt(testSampleArray.length);
+        final List<Integer> expected = new ArrayList<>();
+        for (Integer element : testSampleArray) {
+            if (element < from || element >= to) {
+                expected.add(element);
+            }
+        }
+
+        Assert.assertEquals(testSampleArray.length - expected.size(), sortedTreeList.removeRange(from, to));
+        Assert.assertEquals(expected, getListFromIterator(sortedTreeList.iterator()));
+        Assert.assertEquals(expected.size(), sortedTreeList.size());
+        Assert.assertTrue(isBalanced(sortedTreeList));
+    }
+
+    @Test
+    void testWriteToAndReadFrom() throws IOException {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true, random.nextBoolean());
+
+        final Integer[] testSampleArray = getSampleArrayWithRepeatedElements(1, 0.5);
+        insertElementsFromArray(testSampleArray, sortedTreeList);
+        Arrays.sort(testSampleArray);
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        sortedTreeList.writeTo(Channels.newChannel(output), (element, buffer) -> buffer.putInt(element));
+        final SortedTreeList<Integer> readSortedTreeList = SortedTreeList.readFrom(
+                Channels.newChannel(new ByteArrayInputStream(output.toByteArray())), ByteBuffer::getInt);
+
+        Assert.assertEquals(Arrays.asList(testSampleArray), getListFromIterator(readSortedTreeList.iterator()));
+        Assert.assertEquals(testSampleArray.length, readSortedTreeList.size());
+        Assert.assertEquals(countNodes(sortedTreeList.getRoot()), countNodes(readSortedTreeList.getRoot()));
+        Assert.assertTrue(isBalanced(readSortedTreeList));
+        for (int i = 0; i < testSampleArray.length; i++) {
+            Assert.assertEquals(testSampleArray[i], readSortedTreeList.get(i));
+        }
+        readSortedTreeList.insert(testSampleArray[0]);
+        Assert.assertEquals(testSampleArray.length + 1, readSortedTreeList.size());
+    }
+
+    @Test
+    void testWriteToAndReadFrom_withDeltaVarintCodecInManyBlocks() throws IOException {
+        final SortedTreeList<Long> sortedTreeList = new SortedTreeList<>(true);
+        final int size = 1000 * MAX_SIZE;
+        final List<Long> expected = new ArrayList<>(size);
+        long element = Long.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            element += random.nextInt(100);
+            expected.add(element);
+        }
+        sortedTreeList.insertAll(expected);
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        sortedTreeList.writeTo(Channels.newChannel(output), DeltaVarintCodec.ofLongs());
+        final SortedTreeList<Long> readSortedTreeList = SortedTreeList.readFrom(
+                Channels.newChannel(new ByteArrayInputStream(output.toByteArray())), DeltaVarintCodec.ofLongs());
+
+        Assert.assertTrue(output.size() < 2 * size);
+        Assert.assertEquals(expected, getListFromIterator(readSortedTreeList.iterator()));
+        Assert.assertTrue(isBalanced(readSortedTreeList));
+    }
+
+    @Test
+    void testWriteToAndReadFrom_withComparator() throws IOException {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(Comparator.reverseOrder(), true);
+        final Integer[] testSampleArray = getSampleArrayWithRepeatedElements(1, 0.5);
+        insertElementsFromArray(testSampleArray, sortedTreeList);
+        Arrays.sort(testSampleArray, Comparator.reverseOrder());
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        sortedTreeList.writeTo(Channels.newChannel(output), (element, buffer) -> buffer.putInt(element));
+        final byte[] bytes = output.toByteArray();
+        final SortedTreeList<Integer> readSortedTreeList = SortedTreeList.readFrom(
+                Channels.newChannel(new ByteArrayInputStream(bytes)), ByteBuffer::getInt,
+                Comparator.<Integer>reverseOrder());
+
+        Assert.assertEquals(Arrays.asList(testSampleArray), getListFromIterator(readSortedTreeList.iterator()));
+        for (Integer element : testSampleArray) {
+            Assert.assertTrue(readSortedTreeList.contains(element));
+        }
+        readSortedTreeList.insert(-1);
+        Assert.assertEquals(Integer.valueOf(-1), readSortedTreeList.last());
+
+        Assert.assertThrows(IllegalArgumentException.class, () -> SortedTreeList.readFrom(
+                Channels.newChannel(new ByteArrayInputStream(bytes)), ByteBuffer::getInt));
+        Assert.assertThrows(IllegalArgumentException.class, () -> SortedTreeList.<Integer>readFrom(
+                Channels.newChannel(new ByteArrayInputStream(bytes)), ByteBuffer::getInt, Integer::longValue));
+    }
+
+    @Test
+    void testWriteToAndReadFrom_withKeyExtractor() throws IOException {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(
+                (ToLongFunction<Integer>) element -> -element, true, random.nextBoolean(), BalancingPolicy.AVL);
+        final Integer[] testSampleArray = getSampleArrayWithRepeatedElements(1, 0.5);
+        insertElementsFromArray(testSampleArray, sortedTreeList);
+        Arrays.sort(testSampleArray, Comparator.reverseOrder());
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        sortedTreeList.writeTo(Channels.newChannel(output), (element, buffer) -> buffer.putInt(element));
+        final byte[] bytes = output.toByteArray();
+        final SortedTreeList<Integer> readSortedTreeList = SortedTreeList.readFrom(
+                Channels.newChannel(new ByteArrayInputStream(bytes)), ByteBuffer::getInt,
+                (ToLongFunction<Integer>) element -> -element);
+
+        Assert.assertEquals(Arrays.asList(testSampleArray), getListFromIterator(readSortedTreeList.iterator()));
+        for (Integer element : testSampleArray) {
+            Assert.assertTrue(readSortedTreeList.contains(element));
+        }
+        Assert.assertFalse(readSortedTreeList.contains(-1));
+
+        Assert.assertThrows(IllegalArgumentException.class, () -> SortedTreeList.readFrom(
+                Channels.newChannel(new ByteArrayInputStream(bytes)), ByteBuffer::getInt));
+        Assert.assertThrows(IllegalArgumentException.class, () -> SortedTreeList.readFrom(
+                Channels.newChannel(new ByteArrayInputStream(bytes)), ByteBuffer::getInt,
+                Comparator.<Integer>reverseOrder()));
+    }
+
+    @Test
+    void testWriteToAndReadFrom_withIntervals() throws IOException {
+        final SortedTreeList<long[]> sortedTreeList = new SortedTreeList<>(interval -> interval[0],
+                interval -> interval[1], true);
+        sortedTreeList.insertAll(Arrays.asList(new long[] {1, 10}, new long[] {2, 3}, new long[] {5, 6}));
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        sortedTreeList.writeTo(Channels.newChannel(output),
+                (interval, buffer) -> buffer.putLong(interval[0]).putLong(interval[1]));
+        final SortedTreeList<long[]> readSortedTreeList = SortedTreeList.readFrom(
+                Channels.newChannel(new ByteArrayInputStream(output.toByteArray())),
+                buffer -> new long[] {buffer.getLong(), buffer.getLong()}, interval -> interval[0],
+                interval -> interval[1]);
+
+        final List<Long> result = new ArrayList<>();
+        readSortedTreeList.stabbing(5).forEach(interval -> result.add(interval[0]));
+        Assert.assertEquals(Arrays.asList(1L, 5L), result);
+    }
+
+    @Test
+    void testFromSorted_withComparator() {
+        final SortedTreeList<Integer> sortedTreeList = SortedTreeList.fromSorted(Arrays.asList(3, 2, 2, 1).iterator(),
+                4, Comparator.<Integer>reverseOrder(), true, true);
+
+        Assert.assertEquals(Arrays.asList(3, 2, 2, 1), getListFromIterator(sortedTreeList.iterator()));
+        Assert.assertTrue(sortedTreeList.contains(1));
+        Assert.assertThrows(IllegalArgumentException.class, () -> SortedTreeList.fromSorted(
+                Arrays.asList(1, 2).iterator(), 2, Comparator.<Integer>reverseOrder(), true, true));
+    }
+
+    @Test
+    void testReadFrom_whenTruncated() throws IOException {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>();
+        sortedTreeList.insertAll(Arrays.asList(1, 2, 3));
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        sortedTreeList.writeTo(Channels.newChannel(output), DeltaVarintCodec.ofIntegers());
+        final byte[] bytes = output.toByteArray();
+
+        Assert.assertThrows(EOFException.class, () -> SortedTreeList.readFrom(
+                Channels.newChannel(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 1))),
+                DeltaVarintCodec.ofIntegers()));
+        bytes[0]++;
+        Assert.assertThrows(StreamCorruptedException.class, () -> SortedTreeList.readFrom(
+                Channels.newChannel(new ByteArrayInputStream(bytes)), DeltaVarintCodec.ofIntegers()));
+    }
+
+    @Test
+    void testInsert_withComparator() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(Comparator.reverseOrder(), true);
+
+        final Integer[] testSampleArray = getSampleArrayWithRepeatedElements(1, 0.5);
+        insertElementsFromArray(testSampleArray, sortedTreeList);
+        Arrays.sort(testSampleArray, Comparator.reverseOrder());
+
+        Assert.assertEquals(Arrays.asList(testSampleArray), getListFromIterator(sortedTreeList.iterator()));
+        Assert.assertTrue(isBalanced(sortedTreeList));
+        for (Integer element : testSampleArray) {
+            Assert.assertEquals(element, sortedTreeList.findFirst(element).getData());
+            Assert.assertTrue(sortedTreeList.contains(element));
+        }
+        Assert.assertFalse(sortedTreeList.contains(-1));
+        Assert.assertEquals(Comparator.reverseOrder(), sortedTreeList.spliterator().getComparator());
+    }
+
+    @Test
+    void testInsertAll_withComparator() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(Comparator.reverseOrder(), true);
+
+        final Integer[] testSampleArray = getSampleArrayWithRepeatedElements(1, 0.5);
+        sortedTreeList.insertAll(Arrays.asList(testSampleArray).subList(0, testSampleArray.length / 2));
+        sortedTreeList.insertAll(Arrays.asList(testSampleArray).subList(testSampleArray.length / 2,
+                testSampleArray.length));
+        Arrays.sort(testSampleArray, Comparator.reverseOrder());
+
+        Assert.assertEquals(Arrays.asList(testSampleArray), getListFromIterator(sortedTreeList.iterator()));
+        Assert.assertTrue(isBalanced(sortedTreeList));
+    }
+
+    @Test
+    void testInsert_withKeyExtractor() {
+        final SortedTreeList<long[]> sortedTreeList = new SortedTreeList<>((long[] pair) -> pair[0], true, true,
+                BalancingPolicy.AVL);
+
+        final Integer[] testSampleArray = getSampleArrayWithRepeatedElements(1, 0.5);
+        for (Integer element : testSampleArray) {
+            sortedTreeList.insert(new long[] {element, random.nextLong()});
+        }
+        Arrays.sort(testSampleArray);
+
+        final List<Long> keys = new ArrayList<>();
+        sortedTreeList.forEach(pair -> keys.add(pair[0]));
+        Assert.assertEquals(Arrays.stream(testSampleArray).map(Integer::longValue).collect(Collectors.toList()),
+                keys);
+        Assert.assertEquals(getUniqueElements(testSampleArray).length, countNodes(sortedTreeList.getRoot()));
+        for (Integer element : getUniqueElements(testSampleArray)) {
+            Assert.assertEquals(countElements(testSampleArray, element, element),
+                    sortedTreeList.count(new long[] {element, 0L}));
+        }
+        Assert.assertEquals(0, sortedTreeList.count(new long[] {-1L, 0L}));
+    }
+
+    @Test
+    void testSplitAndJoin_withKeyExtractor() {
+        final ToLongFunction<Integer> keyExtractor = Integer::longValue;
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(keyExtractor, true);
+        sortedTreeList.insertAll(Arrays.asList(5, 1, 4, 2, 3));
+
+        final SortedTreeList<Integer> upper = sortedTreeList.split(3);
+        Assert.assertEquals(Arrays.asList(3, 4, 5), getListFromIterator(upper.iterator()));
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> SortedTreeList.join(sortedTreeList, new SortedTreeList<>(true)));
+
+        SortedTreeList.join(sortedTreeList, upper);
+        Assert.assertEquals(Arrays.asList(1, 2, 3, 4, 5), getListFromIterator(sortedTreeList.iterator()));
+    }
+
+    @Test
+    void testStats() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true);
+        sortedTreeList.enableStats();
+
+        final Integer[] testSampleArray = getSampleArrayWithRepeatedElements(1, 0.5);
+        insertElementsFromArray(testSampleArray, sortedTreeList);
+        for (Integer element : testSampleArray) {
+            sortedTreeList.contains(element);
+        }
+        // The removal can lower the height the previous searches went through.
+        final long height = getHeight(sortedTreeList.getRoot());
+        sortedTreeList.remove(testSampleArray[0]);
+
+        final SortedTreeListStats stats = sortedTreeList.getStats();
+        Assert.assertEquals(testSampleArray.length - 1, stats.getSize());
+        Assert.assertEquals(getHeight(sortedTreeList.getRoot()), stats.getRootRank());
+        Assert.assertEquals(testSampleArray.length, stats.getInsertLatencies().getCount());
+        Assert.assertEquals(testSampleArray.length, stats.getFindLatencies().getCount());
+        Assert.assertEquals(1, stats.getRemoveLatencies().getCount());
+        Assert.assertTrue(stats.getSearches() >= testSampleArray.length + 1);
+        Assert.assertTrue(stats.getNodesVisited() >= stats.getSearches());
+        Assert.assertTrue(stats.getComparisons() >= stats.getNodesVisited());
+        Assert.assertTrue(stats.getAverageSearchDepth() <= height + 1);
+        Assert.assertTrue(stats.getRebalancingSteps() >= stats.getRotations());
+
+        sortedTreeList.resetStats();
+        Assert.assertEquals(0, sortedTreeList.getStats().getComparisons());
+
+        // The sample can be left with fewer than two elements to pop.
+        sortedTreeList.insert(Integer.MIN_VALUE);
+        sortedTreeList.insert(Integer.MAX_VALUE);
+        sortedTreeList.popFirst();
+        sortedTreeList.popLast();
+        Assert.assertEquals(2, sortedTreeList.getStats().getRemoveLatencies().getCount());
+
+        sortedTreeList.insertAll(Arrays.asList(1, 2));
+        sortedTreeList.insertAfterHint(sortedTreeList.getHead(), 3);
+        Assert.assertEquals(4, sortedTreeList.getStats().getInsertLatencies().getCount());
+    }
+
+    @Test
+    void testStats_withAscendingInsertions() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(Integer::longValue, false);
+        sortedTreeList.enableStats();
+
+        for (int i = 0; i < 10 * MAX_SIZE; i++) {
+            sortedTreeList.insert(i);
+        }
+
+        final SortedTreeListStats stats = sortedTreeList.getStats();
+        Assert.assertTrue(stats.getRotations() > 0);
+        Assert.assertTrue(stats.getComparisons() > 0);
+        Assert.assertTrue(stats.getRootRank() <= 2 * log2(10 * MAX_SIZE));
+    }
+
+    @Test
+    void testStats_whenNotEnabled() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>();
+
+        Assert.assertThrows(IllegalStateException.class, sortedTreeList::getStats);
+    }
+
+    @Test
+    void testRegisterStatsMBean() throws JMException {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>();
+        final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+
+        final ObjectName objectName = sortedTreeList.registerStatsMBean("test");
+        try {
+            sortedTreeList.insertAll(Arrays.asList(3, 1, 2));
+            sortedTreeList.contains(2);
+
+            Assert.assertEquals(3L, mBeanServer.getAttribute(objectName, "Size"));
+            Assert.assertEquals(1L, mBeanServer.getAttribute(objectName, "RootRank"));
+            Assert.assertTrue((Long) mBeanServer.getAttribute(objectName, "Comparisons") > 0);
+            mBeanServer.invoke(objectName, "resetStats", null, null);
+            Assert.assertEquals(0L, mBeanServer.getAttribute(objectName, "Comparisons"));
+        } finally {
+            mBeanServer.unregisterMBean(objectName);
+        }
+    }
+
+    @Test
+    void testOffer_evictingLast() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true, random.nextBoolean());
+        final int capacity = 1 + random.nextInt(MAX_SIZE / 10);
+        sortedTreeList.setCapacity(capacity, EvictionSide.LAST);
+
+        final Integer[] testSampleArray = getSampleArrayWithRepeatedElements(1, 0.5);
+        final List<Integer> expected = new ArrayList<>();
+        for (Integer element : testSampleArray) {
+            final Integer result = sortedTreeList.offer(element);
+
+            expected.add(element);
+            Collections.sort(expected);
+            final Integer evicted = expected.size() > capacity ? expected.remove(expected.size() - 1) : null;
+            Assert.assertEquals(evicted, result);
+        }
+
+        Assert.assertEquals(expected, getListFromIterator(sortedTreeList.iterator()));
+        Assert.assertEquals(expected.size(), sortedTreeList.size());
+        Assert.assertTrue(isBalanced(sortedTreeList));
+    }
+
+    @Test
+    void testOffer_evictingFirst() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true);
+        final int capacity = 1 + random.nextInt(MAX_SIZE / 10);
+        sortedTreeList.setCapacity(capacity, EvictionSide.FIRST);
+
+        final Integer[] testSampleArray = getSampleArrayWithRepeatedElements(1, 0.5);
+        for (Integer element : testSampleArray) {
+            sortedTreeList.insert(element);
+        }
+        Arrays.sort(testSampleArray);
+
+        final List<Integer> expected = Arrays.asList(testSampleArray)
+                .subList(Math.max(0, testSampleArray.length - capacity), testSampleArray.length);
+        Assert.assertEquals(expected, getListFromIterator(sortedTreeList.iterator()));
+        Assert.assertTrue(isBalanced(sortedTreeList));
+    }
+
+    @Test
+    void testOffer_whenRejected() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>();
+        sortedTreeList.setCapacity(2, EvictionSide.FIRST);
+        sortedTreeList.enableStats();
+
+        Assert.assertNull(sortedTreeList.offer(5));
+        Assert.assertNull(sortedTreeList.offer(7));
+        final long comparisons = sortedTreeList.getStats().getComparisons();
+
+        Assert.assertEquals(Integer.valueOf(3), sortedTreeList.offer(3));
+        Assert.assertEquals(Integer.valueOf(5), sortedTreeList.offer(5));
+        Assert.assertEquals(comparisons + 2, sortedTreeList.getStats().getComparisons());
+        Assert.assertEquals(Integer.valueOf(7), sortedTreeList.offer(7));
+        Assert.assertEquals(Integer.valueOf(5), sortedTreeList.offer(9));
+        Assert.assertEquals(Arrays.asList(7, 9), getListFromIterator(sortedTreeList.iterator()));
+        Assert.assertNull(sortedTreeList.insertAfterHint(sortedTreeList.getHead(), 6));
+    }
+
+    @Test
+    void testSetCapacity() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true);
+        sortedTreeList.insertAll(Arrays.asList(4, 1, 3, 2, 5));
+
+        sortedTreeList.setCapacity(3, EvictionSide.LAST);
+        Assert.assertEquals(Arrays.asList(1, 2, 3), getListFromIterator(sortedTreeList.iterator()));
+
+        sortedTreeList.insertAll(Arrays.asList(0, 6, 2));
+        Assert.assertEquals(Arrays.asList(0, 1, 2), getListFromIterator(sortedTreeList.iterator()));
+        Assert.assertEquals(3, sortedTreeList.getCapacity());
+        Assert.assertThrows(IllegalArgumentException.class, () -> sortedTreeList.setCapacity(0, EvictionSide.LAST));
+    }
+
+    @Test
+    void testFloorCeilingLowerAndHigher() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(random.nextBoolean());
+
+        final Integer[] testSampleArray = getSampleArrayWithRepeatedElements(1, 0.5);
+        insertElementsFromArray(testSampleArray, sortedTreeList);
+        final TreeSet<Integer> treeSet = new TreeSet<>(Arrays.asList(testSampleArray));
+
+        for (int element = treeSet.first() - 1; element <= treeSet.last() + 1; element++) {
+            Assert.assertEquals(treeSet.floor(element), sortedTreeList.floor(element));
+            Assert.assertEquals(treeSet.ceiling(element), sortedTreeList.ceiling(element));
+            Assert.assertEquals(treeSet.lower(element), sortedTreeList.lower(element));
+            Assert.assertEquals(treeSet.higher(element), sortedTreeList.higher(element));
+        }
+    }
+
+    @Test
+    void testFloorNodeAndCeilingNode_withRepetitions() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true);
+
+        final Integer[] testSampleArray = getSampleArrayWithRepeatedElements(1, 0.5);
+        insertElementsFromArray(testSampleArray, sortedTreeList);
+
+        for (Integer element : testSampleArray) {
+            // The handles are at the ends of the repetitions.
+            final ListNode<Integer> ceiling = sortedTreeList.ceilingNode(element);
+            final ListNode<Integer> floor = sortedTreeList.floorNode(element);
+            Assert.assertEquals(element, ceiling.getData());
+            Assert.assertEquals(element, floor.getData());
+            Assert.assertTrue(ceiling.getPrev() == null || ceiling.getPrev().getData() < element);
+            Assert.assertTrue(floor.getNext() == null || floor.getNext().getData() > element);
+            Assert.assertSame(ceiling.getPrev(), sortedTreeList.lowerNode(element));
+            Assert.assertSame(floor.getNext(), sortedTreeList.higherNode(element));
+        }
+    }
+
+    @Test
+    void testOverlapping() {
+        final SortedTreeList<long[]> sortedTreeList = new SortedTreeList<>(interval -> interval[0],
+                interval -> interval[1], true, random.nextBoolean() ? BalancingPolicy.AVL : BalancingPolicy.WAVL);
+
+        final List<long[]> intervals = new ArrayList<>();
+        for (int i = 0; i < 10 * MAX_SIZE; i++) {
+            final long start = random.nextInt(10 * MAX_SIZE);
+            final long[] interval = {start, start + random.nextInt(MAX_SIZE)};
+            sortedTreeList.insert(interval);
+            intervals.add(interval);
+        }
+        for (int i = 0; i < MAX_SIZE; i++) {
+            // Intervals with the same start are equal, so it is not known which one is removed.
+            sortedTreeList.remove(intervals.get(random.nextInt(intervals.size())));
+        }
+        intervals.clear();
+        sortedTreeList.forEach(intervals::add);
+
+        for (int i = 0; i < MAX_SIZE; i++) {
+            final long from = random.nextInt(10 * MAX_SIZE);
+            final long to = from + random.nextInt(MAX_SIZE);
+
+            final List<Long> expected = new ArrayList<>();
+            for (long[] interval : intervals) {
+                if (interval[0] <= to && interval[1] >= from) {
+                    expected.add(interval[0]);
+                }
+            }
+            final List<Long> result = new ArrayList<>();
+            sortedTreeList.overlapping(from, to).forEach(interval -> result.add(interval[0]));
+
+            Assert.assertEquals(expected, result);
+        }
+    }
+
+    @Test
+    void testStabbing() {
+        final SortedTreeList<long[]> sortedTreeList = new SortedTreeList<>(interval -> interval[0],
+                interval -> interval[1], true);
+        sortedTreeList.insertAll(Arrays.asList(new long[] {1, 10}, new long[] {2, 3}, new long[] {4, 6},
+                new long[] {5, 5}, new long[] {7, 8}));
+
+        final List<Long> result = new ArrayList<>();
+        sortedTreeList.stabbing(5).forEach(interval -> result.add(interval[0]));
+        Assert.assertEquals(Arrays.asList(1L, 4L, 5L), result);
+
+        sortedTreeList.popFirst();
+        Assert.assertFalse(sortedTreeList.stabbing(9).iterator().hasNext());
+        Assert.assertThrows(IllegalStateException.class, () -> new SortedTreeList<Integer>().stabbing(0));
+    }
+
+    @Test
+    void testAggregate() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true, false,
+                random.nextBoolean() ? BalancingPolicy.AVL : BalancingPolicy.WAVL);
+        sortedTreeList.setAggregator(Long.MAX_VALUE, element -> element, Math::min);
+
+        final Integer[] testSampleArray = getSampleArray(1);
+        sortedTreeList.insertAll(Arrays.asList(testSampleArray));
+        for (int i = 0; i < testSampleArray.length / 2; i++) {
+            sortedTreeList.insert(testSampleArray[i]);
+            sortedTreeList.popFirst();
+        }
+        final Integer[] elements = getArrayFromSortedTreeList(sortedTreeList);
+
+        Assert.assertEquals((long) elements[0], sortedTreeList.aggregate());
+        for (int i = 0; i < MAX_SIZE; i++) {
+            final int from = random.nextInt(MAX_SIZE);
+            final int to = from + random.nextInt(MAX_SIZE / 2);
+
+            long expected = Long.MAX_VALUE;
+            for (Integer element : elements) {
+                if (element >= from && element <= to) {
+                    expected = Math.min(expected, element);
+                }
+            }
+            Assert.assertEquals(expected, sortedTreeList.aggregate(from, to));
+        }
+    }
+
+    @Test
+    void testAggregate_withRepetitionsCounted() {
+        final SortedTreeList<Integer> sortedTreeList = new SortedTreeList<>(true, true);
+        sortedTreeList.insertAll(Arrays.asList(1, 2, 2, 2, 3, 5, 5, 8));
+        sortedTreeList.setAggregator(0L, element -> element, Long::sum);
+
+        Assert.assertEquals(28L, sortedTreeList.aggregate());
+        Assert.assertEquals(19L, sortedTreeList.aggregate(2, 5));
+
+        sortedTreeList.remove(2);
+        sortedTreeList.insert(5);
+        Assert.assertEquals(22L, sortedTreeList.aggregate(2, 5));
+        Assert.assertEquals(0L, sortedTreeList.aggregate(6, 7));
+
+        final SortedTreeList<Integer> upper = sortedTreeList.split(3);
+        Assert.assertEquals(5L, sortedTreeList.aggregate());
+        Assert.assertEquals(26L, upper.aggregate());
+        Assert.assertThrows(IllegalStateException.class, () -> new SortedTreeList<Integer>().aggregate());
+    }
+
+    @Test
+    void testSetAggregator_whenNotEmpty() {
+        final SortedTreeList<long[]> sortedTreeList = new SortedTreeList<>(interval -> interval[0],
+                interval -> interval[1], true);
+        sortedTreeList.insertAll(Arrays.asList(new long[] {1, 4}, new long[] {2, 3}, new long[] {6, 9}));
+        final ListNode<long[]> node = sortedTreeList.find(new long[] {2, 3});
+
+        sortedTreeList.setAggregator(0L, interval -> interval[1] - interval[0], Long::sum);
+
+        Assert.assertEquals(7L, sortedTreeList.aggregate());
+        Assert.assertThrows(IllegalArgumentException.class, () -> sortedTreeList.removeNode(node));
+
+        sortedTreeList.insert(new long[] {5, 7});
+        Assert.assertEquals(9L, sortedTreeList.aggregate());
+        final List<Long> result = new ArrayList<>();
+        sortedTreeList.stabbing(7).forEach(interval -> result.add(interval[0]));
+        Assert.assertEquals(Arrays.asList(5L, 6L), result);
+    }
+
+    @Test
+    void testInsert_whenEqualToTail() {
+        final long[] a1 = {1, 1};
+        final long[] a2 = {1, 2};
+        final long[] a3 = {1, 3};
+        final long[] z = {9, 0};
+
+        final SortedTreeList<long[]> withTail = new SortedTreeList<>(element -> element[0], true);
+        final SortedTreeList<long[]> withOther = new SortedTreeList<>(element -> element[0], true);
+        for (long[] element : Arrays.asList(a1, a2, a3)) {
+            withTail.insert(element);
+        }
+        for (long[] element : Arrays.asList(a1, z, a2, a3)) {
+            withOther.insert(element);
+        }
+
+        // The equal elements are placed in the same order whether or not they
+        // are equal to the tail.
+        Assert.assertEquals(Arrays.asList(a3, a2, a1), getListFromIterator(withTail.iterator()));
+        Assert.assertEquals(Arrays.asList(a3, a2, a1, z), getListFromIterator(withOther.iterator()));
+        Assert.assertSame(a3, withTail.findFirst(a1).getData());
+        Assert.assertSame(a1, withTail.findLast(a1).getData());
+    }
+
+    @Test
+    void testInsertAfterHint_whenEqualToHint() {
+        final SortedTreeList<long[]> sortedTreeList = new SortedTreeList<>(element -> element[0], true);
+        final List<ListNode<long[]>> hints = new ArrayList<>();
+        sortedTreeList.insert(new long[] {0, 0});
+        hints.add(sortedTreeList.getHead());
+
+        // Every element goes before its equals whatever the hint, as insert
+        // places them, so they end up sorted by key and then from the last
+        // inserted one.
+        for (int i = 1; i < MAX_SIZE; i++) {
+            final ListNode<long[]> hint = hints.get(random.nextInt(hints.size()));
+            hints.add(sortedTreeList.insertAfterHint(hint, new long[] {random.nextInt(10), i}));
+        }
+
+        long[] previous = null;
+        for (long[] element : sortedTreeList) {
+            if (previous != null) {
+                Assert.assertTrue(previous[0] < element[0] || (previous[0] == element[0] && previous[1] > element[1]));
+            }
+            previous = element;
+        }
+    }
+
+    private <T> long countNodes(final TreeNode<T> root) {
+        if (root == null) {
+            return 0L;
+        }
+        return 1L + countNodes(root.getLeft()) + countNodes(root.getRight());
+    }
+
+
+    private ListNode<Integer> insertAndFind(final SortedTreeList<Integer> sortedTreeList, final Integer data) {
+        sortedTreeList.insert(data);
+        return sortedTreeList.find(data);
+    }
+
+
+    private <T> List<T> getListFromIterator(final Iterator<T> iterator) {
+        final List<T> list = new ArrayList<>();
+        while (iterator.hasNext()) {
+            list.add(iterator.next());
+        }
+        return list;
+    }
+
+
+    private <T extends Comparable<T>> boolean isSorted(final T[] array) {
+        for (int i = 1; i < array.length; i++) {
+            if (array[i - 1].compareTo(array[i]) > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long countElements(final Integer[] array, final int from, final int to) {
+        long count = 0L;
+        for (Integer i : array) {
+            if (from <= i && i <= to) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private Integer[] getSampleArrayWithUniqueElements(final int minSize) {
+        final int n = random.nextInt(MAX_SIZE - minSize + 1) + minSize;
+        final Integer[] array = new Integer[n];
+
+        for (int i = 0; i < n; i++) {
+            array[i] = i;
+        }
+
+        for (int i = 0; i < n; i++) {
+            int j = random.nextInt(n);
+            int tmp = array[i];
+            array[i] = array[j];
+            array[j] = tmp;
+        }
+
+        return array;
+    }
+
+    private Integer[] getSampleArrayWithRepeatedElements(final int minSize, final double uniquenessRate) {
+        final int n = random.nextInt(MAX_SIZE - minSize + 1) + minSize;
+        final Integer[] array = new Integer[n];
+
+        final int m = (int) (n * uniquenessRate) + 1;
+
+        for (int i = 0; i < n; i++) {
+            array[i] = random.nextInt(m);
+        }
+
+        return array;
+    }
+
+    private Integer[] getSampleArray(final int minSize) {
+        final int n = random.nextInt(MAX_SIZE - minSize + 1) + minSize;
+        final Integer[] array = new Integer[n];
+
+        for (int i = 0; i < n; i++) {
+            array[i] = random.nextInt(n);
+        }
+
+        return array;
+    }
+
+    private Integer[] getUniqueElements(final Integer[] array) {
+        TreeSet<Integer> set = new TreeSet<Integer>();
+        for (Integer i : array) {
+            set.add(i);
+        }
+
+        return set.toArray(new Integer[set.size()]);
+    }
+
+    private <T> void scarambleArray(final T[] array) {
+        final int n = array.length;
+        for (int i = 0; i < n; i++) {
+            int j = random.nextInt(n);
+            T tmp = array[i];
+            array[i] = array[j];
+            array[j] = tmp;
+        }
+    }
+
+    private Integer[] getArrayFromSortedTreeList(final SortedTreeList<Integer> sortedTreeList) {
+        return getArrayFromSortedTreeList(sortedTreeList, new Integer[(int) sortedTreeList.size()]);
+    }
+
+    private <T extends Comparable<T>> void insertElementsFromArray(
+            final T[] array, final SortedTreeList<T> sortedTreeList) {
+        for (int i = 0; i < array.length; i++) {
+            sortedTreeList.insert(array[i]);
+        }
+    }
+
+    private <T extends Comparable<T>> T[] getArrayFromSortedTreeList(
+            final SortedTreeList<T> sortedTreeList, final T[] array) {
+        ListNode<T> current = sortedTreeList.getHead();
+
+        int i = 0;
+        while (current != null) {
+            array[i++] = current.getData();
+            current = current.getNext();
+        }
+
+        return array;
+    }
+
+    private long log2(final long n) {
+        return Long.SIZE - Long.numberOfLeadingZeros(n);
     }
 
     private <T> long getHeight(final TreeNode<T> root) {